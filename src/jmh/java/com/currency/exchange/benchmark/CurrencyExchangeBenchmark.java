@@ -0,0 +1,82 @@
+package com.currency.exchange.benchmark;
+
+import com.currency.exchange.CurrencyExchangeApplication;
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request hot paths measured against the beans of a real application context, so the numbers
+ * include whatever the repository and service do per call (snapshot reads, counters, matrix lookups).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CurrencyExchangeBenchmark {
+
+    private static final BigDecimal QUANTITY = new BigDecimal("15");
+
+    private ConfigurableApplicationContext context;
+    private CurrencyExchangeRepository repository;
+    private CurrencyExchangeService service;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(CurrencyExchangeApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--logging.level.root=WARN");
+        repository = context.getBean(CurrencyExchangeRepository.class);
+        service = context.getBean(CurrencyExchangeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<CurrencyExchangeDTO> findByCurrency() {
+        return repository.findByCurrency("HUF");
+    }
+
+    @Benchmark
+    public CurrencyExchange getExchangeRateFromCurrencyPairs() throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getExchangeRateFromCurrencyPairs("USD", "HUF");
+    }
+
+    @Benchmark
+    public CurrencyConversion getCurrencyConversion() throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getCurrencyConversion("USD", "HUF", QUANTITY);
+    }
+
+    /** Bad client input: an unknown currency has to be rejected about as cheaply as a lookup. */
+    @Benchmark
+    public Exception getExchangeRateOfUnknownCurrency() throws InvalidCurrencyException {
+        try {
+            service.getExchangeRateFromCurrencyPairs("USD", "QQQ");
+            throw new IllegalStateException("QQQ is quoted");
+        } catch (CurrencyNotFoundException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.currency.exchange.benchmark;
+
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the response bodies of the rate and conversion endpoints, using an
+ * {@link ObjectMapper} configured the way Spring Boot configures the one behind the REST layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+
+    private ObjectMapper mapper;
+    private CurrencyExchange exchange;
+    private CurrencyConversion conversion;
+
+    @Setup
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        exchange = CurrencyExchange.builder()
+                .fromCurrency("USD")
+                .toCurrency("HUF")
+                .fromCountry("United States")
+                .toCountry("Hungary")
+                .exchangeRate(new BigDecimal("309.24")).build();
+        conversion = CurrencyConversion.builder()
+                .from("USD")
+                .to("HUF")
+                .quantity(new BigDecimal("15"))
+                .exchangeRate(new BigDecimal("309.24"))
+                .calculateAmount(new BigDecimal("4638.60")).build();
+    }
+
+    @Benchmark
+    public byte[] serializeCurrencyExchange() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(exchange);
+    }
+
+    @Benchmark
+    public byte[] serializeCurrencyConversion() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(conversion);
+    }
+}
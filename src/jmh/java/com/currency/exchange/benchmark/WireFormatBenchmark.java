@@ -0,0 +1,107 @@
+package com.currency.exchange.benchmark;
+
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the JSON and CBOR encodings of the rate, conversion and batch bodies: the cost of
+ * writing and reading them with mappers built like the ones behind the REST layer. The encoded
+ * sizes are printed at setup, since they matter as much as the time on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<CurrencyConversionResult>> RESULTS = new TypeReference<List<CurrencyConversionResult>>() { };
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private CurrencyExchange exchange;
+    private CurrencyConversion conversion;
+    private List<CurrencyConversionResult> batch;
+    private byte[] encodedConversion;
+    private byte[] encodedBatch;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        mapper = builder.build();
+        exchange = CurrencyExchange.builder()
+                .fromCurrency("USD")
+                .toCurrency("HUF")
+                .fromCountry("United States")
+                .toCountry("Hungary")
+                .exchangeRate(new BigDecimal("309.24")).build();
+        conversion = CurrencyConversion.builder()
+                .from("USD")
+                .to("HUF")
+                .quantity(new BigDecimal("15"))
+                .exchangeRate(new BigDecimal("309.24"))
+                .calculateAmount(new BigDecimal("4638.60")).build();
+        batch = new ArrayList<>(256);
+        for (int i = 1; i <= 256; i++) {
+            BigDecimal quantity = BigDecimal.valueOf(i * 7L, 1);
+            batch.add(CurrencyConversionResult.builder()
+                    .from("USD")
+                    .to("HUF")
+                    .quantity(quantity)
+                    .exchangeRate(new BigDecimal("309.24"))
+                    .calculateAmount(quantity.multiply(new BigDecimal("309.24")).setScale(2, RoundingMode.HALF_EVEN)).build());
+        }
+        encodedConversion = mapper.writeValueAsBytes(conversion);
+        encodedBatch = mapper.writeValueAsBytes(batch);
+        System.out.printf("%n%s: exchange %d bytes, conversion %d bytes, batch of %d %d bytes%n", format,
+                mapper.writeValueAsBytes(exchange).length, encodedConversion.length, batch.size(), encodedBatch.length);
+    }
+
+    @Benchmark
+    public byte[] serializeCurrencyExchange() throws IOException {
+        return mapper.writeValueAsBytes(exchange);
+    }
+
+    @Benchmark
+    public byte[] serializeCurrencyConversion() throws IOException {
+        return mapper.writeValueAsBytes(conversion);
+    }
+
+    @Benchmark
+    public byte[] serializeBatch() throws IOException {
+        return mapper.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public CurrencyConversion deserializeCurrencyConversion() throws IOException {
+        return mapper.readValue(encodedConversion, CurrencyConversion.class);
+    }
+
+    @Benchmark
+    public List<CurrencyConversionResult> deserializeBatch() throws IOException {
+        return mapper.readValue(encodedBatch, RESULTS);
+    }
+}
@@ -0,0 +1,30 @@
+package com.currency.exchange;
+
+import com.currency.exchange.rest.AdmissionInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts the {@link AdmissionInterceptor} in front of the currency exchange endpoints. Actuator
+ * and Swagger stay outside of it, so health checks keep answering while requests are shed.
+ * Rate subscriptions stay open for minutes, they are bounded by their own limit instead of
+ * holding a place under the concurrency limit.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    public AdmissionConfig(AdmissionInterceptor admissionInterceptor) {
+        this.admissionInterceptor = admissionInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/currency/exchange/**", "/exchange/**")
+                .excludePathPatterns("/currency/exchange/rates/subscribe");
+    }
+}
@@ -0,0 +1,70 @@
+package com.currency.exchange;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hands Tomcat's request processing to a virtual-thread-per-task executor when
+ * {@code exchange.virtual-threads} is set. The service is compiled for Java 11, so the executor
+ * is looked up reflectively and the mode only takes effect on a Java 21+ runtime.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "exchange", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor().orElse(null);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+                LOGGER.info("Serving requests on virtual threads");
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Like {@link #findVirtualThreadPerTaskExecutor()}, warning when the runtime has no virtual threads.
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        Optional<ExecutorService> executor = findVirtualThreadPerTaskExecutor();
+        if (executor.isEmpty()) {
+            LOGGER.warn("Virtual threads need Java 21 or later, running on Java {} with the platform thread pool",
+                    System.getProperty("java.specification.version"));
+        }
+        return executor;
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task, empty on runtimes without virtual threads
+     */
+    public static Optional<ExecutorService> findVirtualThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
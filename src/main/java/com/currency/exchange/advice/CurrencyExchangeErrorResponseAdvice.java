@@ -2,8 +2,11 @@ package com.currency.exchange.advice;
 
 import com.currency.exchange.exception.InvalidCurrencyException;
 import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.RateLimitExceededException;
+import com.currency.exchange.exception.ServiceOverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -15,11 +18,15 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import javax.servlet.http.HttpServletRequest;
 
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CurrencyExchangeErrorResponseAdvice {
     private static final Logger LOGGER = LoggerFactory.getLogger(CurrencyExchangeErrorResponseAdvice.class);
 
     private static final String APPLICATION_PROBLEM_JSON = "application/problem+json";
 
+    /** Error responses only ever set the content type, so every one of them shares these read-only headers. */
+    private static final HttpHeaders PROBLEM_HEADERS = problemHeaders();
+
     /**
      * Handles Exception when method argument is not the expected type.
      *
@@ -55,7 +62,7 @@ public class CurrencyExchangeErrorResponseAdvice {
     public ResponseEntity<CurrencyExchangeErrorResponse> handleInvalidCurrencyException(InvalidCurrencyException ex,
                                                                          HttpServletRequest request) {
 
-        LOGGER.debug("Validation failed because of ", ex.getMessage());
+        LOGGER.debug("Validation failed because of {}", ex.getMessage());
 
 
         CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
@@ -78,7 +85,7 @@ public class CurrencyExchangeErrorResponseAdvice {
     public ResponseEntity<CurrencyExchangeErrorResponse> handleCurrencyNotFoundException(CurrencyNotFoundException ex,
                                                                                         HttpServletRequest request) {
 
-        LOGGER.debug("Currency Not Found because of ", ex.getMessage());
+        LOGGER.debug("Currency Not Found because of {}", ex.getMessage());
 
 
         CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
@@ -88,6 +95,48 @@ public class CurrencyExchangeErrorResponseAdvice {
                 HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Handles the exception when a client exceeds its rate limit.
+     *
+     * @param ex
+     *            {@link RateLimitExceededException}
+     * @param request
+     *            {@link HttpServletRequest}
+     * @return {@link ResponseEntity} with a Retry-After of the seconds until the client's next request is admitted
+     */
+    @ExceptionHandler({ RateLimitExceededException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex,
+                                                                                         HttpServletRequest request) {
+
+        LOGGER.debug("Request rejected because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(), null,
+                "Too many requests", ex.getMessage(), request.getRequestURI());
+
+        return new ResponseEntity<>(errorResp, retryAfter(ex.getRetryAfterSeconds()), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Handles the exception when a request is shed because the service is overloaded.
+     *
+     * @param ex
+     *            {@link ServiceOverloadedException}
+     * @param request
+     *            {@link HttpServletRequest}
+     * @return {@link ResponseEntity} with a Retry-After of one second
+     */
+    @ExceptionHandler({ ServiceOverloadedException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex,
+                                                                                         HttpServletRequest request) {
+
+        LOGGER.debug("Request shed because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), null,
+                "Service overloaded", ex.getMessage(), request.getRequestURI());
+
+        return new ResponseEntity<>(errorResp, retryAfter(1), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * fall-back handler – a catch-all type of logic that deals with all other
      * exceptions that don’t have specific handlers.
@@ -108,8 +157,19 @@ public class CurrencyExchangeErrorResponseAdvice {
     }
 
     private HttpHeaders overrideContentType() {
+        return PROBLEM_HEADERS;
+    }
+
+    private static HttpHeaders retryAfter(long seconds) {
         HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.set(HttpHeaders.CONTENT_TYPE, APPLICATION_PROBLEM_JSON);
+        httpHeaders.putAll(PROBLEM_HEADERS);
+        httpHeaders.set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
         return httpHeaders;
     }
+
+    private static HttpHeaders problemHeaders() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.set(HttpHeaders.CONTENT_TYPE, APPLICATION_PROBLEM_JSON);
+        return HttpHeaders.readOnlyHttpHeaders(httpHeaders);
+    }
 }
@@ -0,0 +1,195 @@
+package com.currency.exchange.advice;
+
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.exception.RateLimitExceededException;
+import com.currency.exchange.exception.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+
+/**
+ * Error responses of the reactive API, the same bodies and statuses as
+ * {@link CurrencyExchangeErrorResponseAdvice} gives on the servlet stack.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCurrencyExchangeErrorResponseAdvice {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveCurrencyExchangeErrorResponseAdvice.class);
+
+    private static final String APPLICATION_PROBLEM_JSON = "application/problem+json";
+
+    /** Error responses only ever set the content type, so every one of them shares these read-only headers. */
+    private static final HttpHeaders PROBLEM_HEADERS = problemHeaders();
+
+    /**
+     * Handles Exception when a request parameter or body can't be converted.
+     *
+     * @param ex
+     *            {@link ServerWebInputException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} containing standard body in case of errors
+     */
+    @ExceptionHandler({ ServerWebInputException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleServerWebInputException(ServerWebInputException ex,
+                                                                                       ServerHttpRequest request) {
+
+        CurrencyExchangeErrorResponse error = new CurrencyExchangeErrorResponse(HttpStatus.UNPROCESSABLE_ENTITY.value(), null,
+                "Parameter type mismatch", ex.getReason(), request.getPath().value());
+
+        return new ResponseEntity<>(error, overrideContentType(), HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * Handles the exception when input currency attributes are invalid.
+     *
+     * @param ex
+     *            {@link InvalidCurrencyException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} containing standard body in case of errors
+     */
+    @ExceptionHandler({ InvalidCurrencyException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleInvalidCurrencyException(InvalidCurrencyException ex,
+                                                                                        ServerHttpRequest request) {
+
+        LOGGER.debug("Validation failed because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+                "Invalid currencies", ex.getMessage(), request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, overrideContentType(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles the exception when no currency is found for the inputs.
+     *
+     * @param ex
+     *            {@link CurrencyNotFoundException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} containing standard body in case of errors
+     */
+    @ExceptionHandler({ CurrencyNotFoundException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleCurrencyNotFoundException(CurrencyNotFoundException ex,
+                                                                                         ServerHttpRequest request) {
+
+        LOGGER.debug("Currency Not Found because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), null,
+                "Currency Not found", ex.getMessage(), request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, overrideContentType(), HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Handles the exception when a client exceeds its rate limit.
+     *
+     * @param ex
+     *            {@link RateLimitExceededException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} with a Retry-After of the seconds until the client's next request is admitted
+     */
+    @ExceptionHandler({ RateLimitExceededException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex,
+                                                                                         ServerHttpRequest request) {
+
+        LOGGER.debug("Request rejected because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.TOO_MANY_REQUESTS.value(), null,
+                "Too many requests", ex.getMessage(), request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, retryAfter(ex.getRetryAfterSeconds()), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Handles the exception when a request is shed because the service is overloaded.
+     *
+     * @param ex
+     *            {@link ServiceOverloadedException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} with a Retry-After of one second
+     */
+    @ExceptionHandler({ ServiceOverloadedException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex,
+                                                                                         ServerHttpRequest request) {
+
+        LOGGER.debug("Request shed because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.SERVICE_UNAVAILABLE.value(), null,
+                "Service overloaded", ex.getMessage(), request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, retryAfter(1), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles the exceptions WebFlux raises with a status of their own, e.g. an unsupported media
+     * type, keeping that status. The servlet stack resolves these before the controller advice.
+     *
+     * @param ex
+     *            {@link ResponseStatusException}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} containing standard body in case of errors
+     */
+    @ExceptionHandler({ ResponseStatusException.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleResponseStatusException(ResponseStatusException ex,
+                                                                                       ServerHttpRequest request) {
+
+        LOGGER.debug("Request failed because of {}", ex.getMessage());
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(ex.getStatus().value(), null,
+                ex.getStatus().getReasonPhrase(), ex.getReason(), request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, overrideContentType(), ex.getStatus());
+    }
+
+    /**
+     * fall-back handler – a catch-all type of logic that deals with all other
+     * exceptions that don’t have specific handlers.
+     *
+     * @param ex
+     *            {@link Exception}
+     * @param request
+     *            {@link ServerHttpRequest}
+     * @return {@link ResponseEntity} containing standard body in case of errors
+     */
+    @ExceptionHandler({ Exception.class })
+    public ResponseEntity<CurrencyExchangeErrorResponse> handleAll(Exception ex, ServerHttpRequest request) {
+
+        LOGGER.error("An unexpected error occurred", ex);
+
+        CurrencyExchangeErrorResponse errorResp = new CurrencyExchangeErrorResponse(HttpStatus.BAD_REQUEST.value(), null,
+                "Failed:", "An unexpected error has occurred", request.getPath().value());
+
+        return new ResponseEntity<>(errorResp, overrideContentType(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private HttpHeaders overrideContentType() {
+        return PROBLEM_HEADERS;
+    }
+
+    private static HttpHeaders retryAfter(long seconds) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.putAll(PROBLEM_HEADERS);
+        httpHeaders.set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        return httpHeaders;
+    }
+
+    private static HttpHeaders problemHeaders() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.set(HttpHeaders.CONTENT_TYPE, APPLICATION_PROBLEM_JSON);
+        return HttpHeaders.readOnlyHttpHeaders(httpHeaders);
+    }
+}
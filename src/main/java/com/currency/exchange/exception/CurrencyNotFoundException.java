@@ -1,7 +1,12 @@
 package com.currency.exchange.exception;
 
+/**
+ * Thrown for currencies that aren't quoted. Like {@link InvalidCurrencyException} it reports bad
+ * client input, so it is thrown without a stack trace: filling one in would cost more than
+ * the lookup that failed.
+ */
 public class CurrencyNotFoundException extends Exception{
     public CurrencyNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -1,8 +1,12 @@
 package com.currency.exchange.exception;
 
+/**
+ * Thrown for missing or malformed inputs. It reports bad client input, so it is thrown without
+ * a stack trace.
+ */
 public class InvalidCurrencyException extends Exception{
 
     public InvalidCurrencyException(String message) {
-        super (message);
+        super (message, null, false, false);
     }
 }
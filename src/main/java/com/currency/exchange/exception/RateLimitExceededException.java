@@ -0,0 +1,22 @@
+package com.currency.exchange.exception;
+
+/**
+ * Thrown when a client sends requests faster than its rate limit allows. Rejecting must stay
+ * cheaper than serving, so it is thrown without a stack trace.
+ */
+public class RateLimitExceededException extends Exception {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * @return whole seconds until the client's next request will be admitted
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package com.currency.exchange.exception;
+
+/**
+ * Thrown when a request is shed because the instance already serves as many requests as it can
+ * without its latency growing. Like {@link RateLimitExceededException} it is thrown without a
+ * stack trace.
+ */
+public class ServiceOverloadedException extends Exception {
+
+    public ServiceOverloadedException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,311 @@
+package com.currency.exchange.metrics;
+
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.RateSnapshotPublishedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Central place for the service's own meters, so meter names and tags stay consistent
+ * across the components that record them. Meters used on the request path are created once
+ * and cached, recording them is a lock-free increment.
+ */
+@Component
+public class CurrencyExchangeMetrics implements ApplicationListener<PayloadApplicationEvent<RateSnapshotPublishedEvent>> {
+
+    private final MeterRegistry registry;
+    private final CurrencyExchangeRepository repository;
+
+    private final Timer reloadTimer;
+    private final Counter reloadFailures;
+    private final Timer crossRateBuildTimer;
+    private final Timer crossRateRebuildTimer;
+    private final Counter crossRateHits;
+    private final Counter crossRateMisses;
+    private final Counter coalescedCrossRates;
+    private final Counter coalescedSeries;
+    private final Timer streamTimer;
+    private final Counter streamRows;
+    private final Timer feedFetchTimer;
+    private final Timer feedParseTimer;
+    private final Timer fanOutTimer;
+    private final Counter droppedUpdates;
+    private final Counter rateLimitedRequests;
+    private final Counter shedRequests;
+
+    private final Map<String, Map<String, Counter>> pairRequests = new ConcurrentHashMap<>();
+    private final Set<String> currencyRequests = ConcurrentHashMap.newKeySet();
+
+    public CurrencyExchangeMetrics(MeterRegistry registry, CurrencyExchangeRepository repository) {
+        this.registry = registry;
+        this.repository = repository;
+        this.reloadTimer = Timer.builder("currency.exchange.rates.reload")
+                .description("Time taken to parse and publish a new rate snapshot")
+                .register(registry);
+        this.reloadFailures = Counter.builder("currency.exchange.rates.reload.failures")
+                .description("Rate reloads that failed and kept the previous snapshot")
+                .register(registry);
+        Gauge.builder("currency.exchange.rates.snapshot.version", repository, repo -> repo.getSnapshot().getVersion())
+                .description("Version of the rate snapshot currently being served")
+                .register(registry);
+        Gauge.builder("currency.exchange.rates.snapshot.age", repository,
+                repo -> Duration.between(repo.getSnapshot().getLoadedAt(), Instant.now()).toMillis() / 1000.0)
+                .description("Seconds since the rate snapshot currently being served was loaded")
+                .baseUnit("seconds")
+                .register(registry);
+        this.crossRateBuildTimer = Timer.builder("currency.exchange.crossrates.build")
+                .description("Time taken to compute the cross-rate matrix of a snapshot")
+                .tag("type", "full")
+                .register(registry);
+        this.crossRateRebuildTimer = Timer.builder("currency.exchange.crossrates.build")
+                .description("Time taken to compute the cross-rate matrix of a snapshot")
+                .tag("type", "incremental")
+                .register(registry);
+        this.crossRateHits = Counter.builder("currency.exchange.crossrates.lookups")
+                .description("Cross-rate lookups served from an already built matrix")
+                .tag("result", "hit")
+                .register(registry);
+        this.crossRateMisses = Counter.builder("currency.exchange.crossrates.lookups")
+                .description("Cross-rate lookups that had to build the matrix of a new snapshot first")
+                .tag("result", "miss")
+                .register(registry);
+        this.coalescedCrossRates = Counter.builder("currency.exchange.coalesced")
+                .description("Requests that shared a computation already in flight instead of repeating it")
+                .tag("work", "crossrates")
+                .register(registry);
+        this.coalescedSeries = Counter.builder("currency.exchange.coalesced")
+                .description("Requests that shared a computation already in flight instead of repeating it")
+                .tag("work", "series")
+                .register(registry);
+        this.streamTimer = Timer.builder("currency.exchange.stream")
+                .description("Duration of streaming conversion requests")
+                .register(registry);
+        this.streamRows = Counter.builder("currency.exchange.stream.rows")
+                .description("Rows converted through the streaming conversion endpoint")
+                .register(registry);
+        this.feedFetchTimer = Timer.builder("currency.exchange.feed.fetch")
+                .description("Latency of rate feed requests, including unchanged responses")
+                .register(registry);
+        this.feedParseTimer = Timer.builder("currency.exchange.feed.parse")
+                .description("Time taken to parse and validate a rate feed document")
+                .register(registry);
+        this.fanOutTimer = Timer.builder("currency.exchange.subscriptions.fanout")
+                .description("Time from a new rate snapshot to a changed rate being sent to a subscriber")
+                .register(registry);
+        this.droppedUpdates = Counter.builder("currency.exchange.subscriptions.dropped")
+                .description("Rate updates dropped because a subscriber read them too slowly")
+                .register(registry);
+        this.rateLimitedRequests = Counter.builder("currency.exchange.admission.rejected")
+                .description("Requests rejected before being served")
+                .tag("reason", "rate-limit")
+                .register(registry);
+        this.shedRequests = Counter.builder("currency.exchange.admission.rejected")
+                .description("Requests rejected before being served")
+                .tag("reason", "overload")
+                .register(registry);
+        RateSnapshot current = repository.getSnapshot();
+        if (current != null) {
+            registerCurrencyRequests(current);
+        }
+    }
+
+    /**
+     * Exposes the repository's per-currency request counters of every newly quoted currency.
+     * Registered as a listener as soon as this bean exists, so the snapshots published while the
+     * context is starting are seen too.
+     */
+    @Override
+    public void onApplicationEvent(PayloadApplicationEvent<RateSnapshotPublishedEvent> event) {
+        registerCurrencyRequests(event.getPayload().getSnapshot());
+    }
+
+    public void recordPairRequest(String from, String to) {
+        pairRequests.computeIfAbsent(from, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(to, key -> Counter.builder("currency.exchange.pair.requests")
+                        .description("Requests that resolved the currency pair")
+                        .tag("from", from)
+                        .tag("to", to)
+                        .register(registry))
+                .increment();
+    }
+
+    public void recordCrossRateLookup(boolean hit) {
+        (hit ? crossRateHits : crossRateMisses).increment();
+    }
+
+    public void recordCrossRateBuild(long durationNanos, boolean incremental) {
+        (incremental ? crossRateRebuildTimer : crossRateBuildTimer).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param series whether the request waited for the series of a pair rather than the cross rates
+     */
+    public void recordCoalesced(boolean series) {
+        (series ? coalescedSeries : coalescedCrossRates).increment();
+    }
+
+    /**
+     * Exposes the size, hits, misses and evictions of a Caffeine cache built with recordStats(),
+     * as the cache.* meters tagged with the cache name.
+     */
+    public void monitorCache(String name, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    public void recordStream(long durationNanos, long rows) {
+        streamTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        streamRows.increment(rows);
+    }
+
+    public void recordReload(long durationNanos) {
+        reloadTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordReloadFailure() {
+        reloadFailures.increment();
+    }
+
+    public void recordFeedFetch(long durationNanos) {
+        feedFetchTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFeedParse(long durationNanos) {
+        feedParseTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param stage fetch, parse or validation
+     */
+    public void recordFeedFailure(String stage) {
+        Counter.builder("currency.exchange.feed.failures")
+                .description("Rate feed refreshes that failed and kept the previous snapshot")
+                .tag("stage", stage)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Exposes how stale the last good rates of a provider are and how many currencies are
+     * currently served from it.
+     */
+    public void registerProvider(String provider, Supplier<Instant> asOf, IntSupplier selectedCurrencies) {
+        Gauge.builder("currency.exchange.provider.age", asOf, supplier -> ageInSeconds(supplier.get()))
+                .description("Seconds since the last good rates of the provider were valid, NaN if they are undated")
+                .baseUnit("seconds")
+                .tag("provider", provider)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("currency.exchange.provider.selected", selectedCurrencies, IntSupplier::getAsInt)
+                .description("Currencies of the current snapshot whose rate comes from the provider")
+                .tag("provider", provider)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    /**
+     * @param outcome success, failure or timeout
+     */
+    public void recordProviderFetch(String provider, String outcome, long durationNanos) {
+        Timer.builder("currency.exchange.provider.fetch")
+                .description("Latency of rate provider fetches as seen by the rate refresh")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Exposes the configured client rate limit and burst, the number of clients being limited,
+     * and the current concurrency limit with the requests counted against it.
+     */
+    public void registerAdmission(double clientRateLimit, int clientBurst, IntSupplier clients, IntSupplier concurrencyLimit,
+                                  IntSupplier inFlight) {
+        Gauge.builder("currency.exchange.admission.client.rate", () -> clientRateLimit)
+                .description("Requests per second each client may send, 0 if unlimited")
+                .register(registry);
+        Gauge.builder("currency.exchange.admission.client.burst", () -> clientBurst)
+                .description("Requests an idle client may send at once")
+                .register(registry);
+        Gauge.builder("currency.exchange.admission.clients", clients, IntSupplier::getAsInt)
+                .description("Clients with a token bucket")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("currency.exchange.admission.limit", concurrencyLimit, IntSupplier::getAsInt)
+                .description("Requests currently allowed in progress at once, 0 if unlimited")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("currency.exchange.admission.inflight", inFlight, IntSupplier::getAsInt)
+                .description("Requests in progress counted against the concurrency limit")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    /**
+     * @param overloaded whether the request was shed by the concurrency limit rather than its client's rate limit
+     */
+    public void recordAdmissionRejected(boolean overloaded) {
+        (overloaded ? shedRequests : rateLimitedRequests).increment();
+    }
+
+    public void registerSubscriptions(IntSupplier subscribers, IntSupplier pairs) {
+        Gauge.builder("currency.exchange.subscriptions", subscribers, IntSupplier::getAsInt)
+                .description("Clients subscribed to rate updates")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("currency.exchange.subscriptions.pairs", pairs, IntSupplier::getAsInt)
+                .description("Distinct currency pairs with at least one subscriber")
+                .strongReference(true)
+                .register(registry);
+    }
+
+    public void recordFanOut(long durationNanos) {
+        fanOutTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDroppedUpdate() {
+        droppedUpdates.increment();
+    }
+
+    private static double ageInSeconds(Instant asOf) {
+        if (asOf == null || Instant.EPOCH.equals(asOf)) {
+            return Double.NaN;
+        }
+        return Duration.between(asOf, Instant.now()).toMillis() / 1000.0;
+    }
+
+    private void registerCurrencyRequests(RateSnapshot snapshot) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            String currency = snapshot.get(i).getCurrency();
+            if (currencyRequests.add(currency)) {
+                FunctionCounter.builder("currency.exchange.currency.requests", repository, repo -> noOfRequests(repo, currency))
+                        .description("Requests that resolved the currency")
+                        .tag("currency", currency)
+                        .register(registry);
+            }
+        }
+    }
+
+    private static double noOfRequests(CurrencyExchangeRepository repository, String currency) {
+        RateSnapshot snapshot = repository.getSnapshot();
+        int ordinal = snapshot.indexOf(currency);
+        return ordinal < 0 ? 0 : snapshot.getNoOfRequests(ordinal);
+    }
+}
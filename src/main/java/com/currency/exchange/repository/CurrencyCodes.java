@@ -0,0 +1,38 @@
+package com.currency.exchange.repository;
+
+/**
+ * Dense numbering of the three letter currency codes of ISO 4217, {@code AAA} to {@code ZZZ}.
+ * A code is checked and numbered in one pass over its characters, without hashing or
+ * allocating, so lookups keyed by the number can reject malformed client input at no cost.
+ */
+public final class CurrencyCodes {
+
+    /** Number of well-formed codes, the size of a table indexed by {@link #index(String)}. */
+    public static final int SIZE = 26 * 26 * 26;
+
+    private CurrencyCodes() {
+    }
+
+    /**
+     * @param code
+     * @return the number of the code, or -1 unless it is three upper case ASCII letters
+     */
+    public static int index(String code) {
+        if (code == null || code.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            char letter = code.charAt(i);
+            if (letter < 'A' || letter > 'Z') {
+                return -1;
+            }
+            index = index * 26 + (letter - 'A');
+        }
+        return index;
+    }
+
+    public static boolean isWellFormed(String code) {
+        return index(code) >= 0;
+    }
+}
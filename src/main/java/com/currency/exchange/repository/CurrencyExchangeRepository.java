@@ -14,4 +14,20 @@ public interface CurrencyExchangeRepository {
 
     Map<String, Integer> getCurrencyVsNoOfRequest();
 
+    /**
+     * Returns the rate snapshot currently being served. Callers that need several lookups to be
+     * consistent with each other should take the snapshot once and read from it.
+     *
+     * @return {@link RateSnapshot}
+     */
+    RateSnapshot getSnapshot();
+
+    /**
+     * Builds a new snapshot from the given rates and atomically swaps it in.
+     *
+     * @param data
+     * @return the published {@link RateSnapshot}
+     */
+    RateSnapshot publish(List<CurrencyExchangeDTO> data);
+
 }
@@ -0,0 +1,30 @@
+package com.currency.exchange.repository;
+
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rates returned by one {@link RateProvider} fetch, with the instant they are valid as of.
+ * When several providers quote a currency the freshest one is served.
+ */
+public final class ProvidedRates {
+
+    private final Instant asOf;
+    private final List<CurrencyExchangeDTO> rates;
+
+    public ProvidedRates(Instant asOf, List<CurrencyExchangeDTO> rates) {
+        this.asOf = asOf;
+        this.rates = Collections.unmodifiableList(rates);
+    }
+
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public List<CurrencyExchangeDTO> getRates() {
+        return rates;
+    }
+}
@@ -0,0 +1,44 @@
+package com.currency.exchange.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable set of {@link RateSeries}, one per currency, all quoted against EUR.
+ */
+public final class RateHistory {
+
+    public static final RateHistory EMPTY = new RateHistory(Collections.emptyMap());
+
+    private final Map<String, RateSeries> series;
+
+    public RateHistory(Map<String, RateSeries> series) {
+        this.series = Collections.unmodifiableMap(series);
+    }
+
+    public Map<String, RateSeries> getSeries() {
+        return series;
+    }
+
+    public RateSeries getSeries(String currency) {
+        return currency == null ? null : series.get(currency);
+    }
+
+    /**
+     * @param currency
+     * @param date
+     * @return the EUR rate of the currency valid on the given date, i.e. the last one published on or before it,
+     * empty if that one is more than {@link RateSeries#MAX_LOOK_BACK_DAYS} older
+     */
+    public Optional<BigDecimal> findRateAsOf(String currency, LocalDate date) {
+        RateSeries rates = getSeries(currency);
+        if (rates == null) {
+            return Optional.empty();
+        }
+        int index = rates.indexValidOn((int) date.toEpochDay());
+        return index < 0 ? Optional.empty() : Optional.of(rates.decimalRateAt(index));
+    }
+}
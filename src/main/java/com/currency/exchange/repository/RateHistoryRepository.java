@@ -0,0 +1,12 @@
+package com.currency.exchange.repository;
+
+public interface RateHistoryRepository {
+
+    /**
+     * Returns the rate history currently being served.
+     *
+     * @return {@link RateHistory}
+     */
+    RateHistory getHistory();
+
+}
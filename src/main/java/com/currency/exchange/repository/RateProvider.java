@@ -0,0 +1,37 @@
+package com.currency.exchange.repository;
+
+import java.io.IOException;
+
+/**
+ * A source of EUR rates. Every enabled provider is queried in parallel on each refresh and the
+ * freshest valid rate of every currency is published to the {@link CurrencyExchangeRepository}.
+ * Providers are ranked by their {@link org.springframework.core.annotation.Order}, the better
+ * ranked provider wins when two quote a currency as of the same instant.
+ */
+public interface RateProvider {
+
+    /**
+     * @return short name used in configuration and metric tags
+     */
+    String getName();
+
+    boolean isEnabled();
+
+    /**
+     * Reads the provider's current rates. Called on a provider thread, never on a request thread.
+     *
+     * @return {@link ProvidedRates}
+     * @throws IOException if the rates can't be read or are invalid
+     */
+    ProvidedRates fetch() throws IOException;
+
+    /**
+     * Starts notifying the listener whenever the provider knows its rates changed, for providers
+     * that don't have to be polled.
+     *
+     * @param onChange
+     * @throws IOException
+     */
+    default void watch(Runnable onChange) throws IOException {
+    }
+}
@@ -0,0 +1,63 @@
+package com.currency.exchange.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Daily exchange rates of one currency in ascending date order. Dates are epoch days and rates
+ * are fixed-point longs with {@link #RATE_SCALE} decimal places, so a series is two primitive
+ * columns and lookups never allocate.
+ */
+public interface RateSeries {
+
+    int RATE_SCALE = 6;
+
+    /**
+     * Days a published rate stays valid for. The ECB publishes every business day, the longest
+     * gap being the Easter weekend, so a date further from the last rate is after the series ended
+     * or inside a hole of it.
+     */
+    int MAX_LOOK_BACK_DAYS = 7;
+
+    int size();
+
+    int dayAt(int index);
+
+    long rateAt(int index);
+
+    default BigDecimal decimalRateAt(int index) {
+        return BigDecimal.valueOf(rateAt(index), RATE_SCALE);
+    }
+
+    /**
+     * Binary search for the last rate published on or before the given day.
+     *
+     * @param epochDay
+     * @return index of that rate, or -1 when the series starts after the given day
+     */
+    default int indexAsOf(int epochDay) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int day = dayAt(mid);
+            if (day <= epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Like {@link #indexAsOf(int)}, but only a rate published within {@link #MAX_LOOK_BACK_DAYS}
+     * before the day is valid on it.
+     *
+     * @param epochDay
+     * @return index of the rate valid on the day, or -1 when there is none
+     */
+    default int indexValidOn(int epochDay) {
+        int index = indexAsOf(epochDay);
+        return index < 0 || epochDay - dayAt(index) > MAX_LOOK_BACK_DAYS ? -1 : index;
+    }
+}
@@ -0,0 +1,139 @@
+package com.currency.exchange.repository;
+
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable, versioned view of the exchange rates loaded from the rate source.
+ * Every currency gets a dense ordinal (its position in {@link #getCurrencies()}) so that
+ * lookups by code are O(1) and callers can keep per-currency state in plain arrays. Well-formed
+ * codes are looked up in a table indexed by {@link CurrencyCodes#index(String)}, so a lookup
+ * neither hashes nor compares strings and malformed codes are rejected before any lookup.
+ * <p>
+ * The only mutable state is the per-currency request counters. They are striped
+ * {@link LongAdder}s indexed by ordinal and are handed over to the next snapshot for every
+ * currency that is still present, so counts survive a reload and increments that race with a
+ * swap are not lost.
+ */
+public final class RateSnapshot {
+
+    public static final RateSnapshot EMPTY = new RateSnapshot(0, Instant.EPOCH, Collections.emptyList(), new LongAdder[0]);
+
+    private final long version;
+    private final Instant loadedAt;
+    private final List<CurrencyExchangeDTO> currencies;
+    /** Ordinal plus one of every well-formed code, 0 if it isn't quoted. */
+    private final int[] ordinalsByCode;
+    /** Ordinals of codes that aren't well-formed, normally none. */
+    private final Map<String, Integer> otherOrdinals;
+    private final LongAdder[] requestCounters;
+
+    private RateSnapshot(long version, Instant loadedAt, List<CurrencyExchangeDTO> currencies, LongAdder[] requestCounters) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.currencies = currencies;
+        int[] byCode = new int[CurrencyCodes.SIZE];
+        Map<String, Integer> others = new HashMap<>();
+        for (int i = 0; i < currencies.size(); i++) {
+            String currency = currencies.get(i).getCurrency();
+            int code = CurrencyCodes.index(currency);
+            if (code >= 0) {
+                byCode[code] = i + 1;
+            } else {
+                others.put(currency, i);
+            }
+        }
+        this.ordinalsByCode = byCode;
+        this.otherOrdinals = others.isEmpty() ? Collections.emptyMap() : others;
+        this.requestCounters = requestCounters;
+    }
+
+    /**
+     * Builds a snapshot from the given rates. Entries are copied so later changes to the
+     * source list or its DTOs can't leak into a published snapshot.
+     *
+     * @param version
+     * @param data
+     * @return {@link RateSnapshot}
+     */
+    public static RateSnapshot of(long version, List<CurrencyExchangeDTO> data) {
+        return of(version, data, EMPTY);
+    }
+
+    /**
+     * Builds the snapshot succeeding {@code previous}, carrying over the request counters of
+     * every currency that is still quoted.
+     *
+     * @param version
+     * @param data
+     * @param previous
+     * @return {@link RateSnapshot}
+     */
+    public static RateSnapshot of(long version, List<CurrencyExchangeDTO> data, RateSnapshot previous) {
+        List<CurrencyExchangeDTO> copy = new ArrayList<>(data.size());
+        LongAdder[] counters = new LongAdder[data.size()];
+        for (CurrencyExchangeDTO each : data) {
+            int previousOrdinal = previous.indexOf(each.getCurrency());
+            counters[copy.size()] = previousOrdinal < 0 ? new LongAdder() : previous.requestCounters[previousOrdinal];
+            copy.add(new CurrencyExchangeDTO(each.getCurrency(), each.getExchangeRate(), each.getCountry(), each.getDescription(), each.getBase()));
+        }
+        return new RateSnapshot(version, Instant.now(), Collections.unmodifiableList(copy), counters);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public List<CurrencyExchangeDTO> getCurrencies() {
+        return currencies;
+    }
+
+    public int size() {
+        return currencies.size();
+    }
+
+    /**
+     * @param currency
+     * @return the ordinal of the currency, or -1 when it isn't part of this snapshot
+     */
+    public int indexOf(String currency) {
+        int code = CurrencyCodes.index(currency);
+        if (code >= 0) {
+            return ordinalsByCode[code] - 1;
+        }
+        if (currency == null || otherOrdinals.isEmpty()) {
+            return -1;
+        }
+        Integer ordinal = otherOrdinals.get(currency);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public CurrencyExchangeDTO get(int ordinal) {
+        return currencies.get(ordinal);
+    }
+
+    public void recordRequest(int ordinal) {
+        requestCounters[ordinal].increment();
+    }
+
+    public long getNoOfRequests(int ordinal) {
+        return requestCounters[ordinal].sum();
+    }
+
+    public Optional<CurrencyExchangeDTO> findByCurrency(String currency) {
+        int ordinal = indexOf(currency);
+        return ordinal < 0 ? Optional.empty() : Optional.of(currencies.get(ordinal));
+    }
+}
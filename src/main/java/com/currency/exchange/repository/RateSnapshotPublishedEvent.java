@@ -0,0 +1,24 @@
+package com.currency.exchange.repository;
+
+/**
+ * Published by the repository after a new {@link RateSnapshot} has been swapped in, so derived
+ * state can be rebuilt off the request path.
+ */
+public class RateSnapshotPublishedEvent {
+
+    private final RateSnapshot previous;
+    private final RateSnapshot snapshot;
+
+    public RateSnapshotPublishedEvent(RateSnapshot previous, RateSnapshot snapshot) {
+        this.previous = previous;
+        this.snapshot = snapshot;
+    }
+
+    public RateSnapshot getPrevious() {
+        return previous;
+    }
+
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }
+}
@@ -1,5 +1,6 @@
 package com.currency.exchange.repository.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -7,6 +8,10 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 
+/**
+ * A rate quote: one unit of {@code base} is worth {@code exchangeRate} units of
+ * {@code currency}. Quotes without a base are against EUR.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -15,4 +20,10 @@ public class CurrencyExchangeDTO {
     private BigDecimal exchangeRate;
     private String country;
     private String description;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String base;
+
+    public CurrencyExchangeDTO(String currency, BigDecimal exchangeRate, String country, String description) {
+        this(currency, exchangeRate, country, description, null);
+    }
 }
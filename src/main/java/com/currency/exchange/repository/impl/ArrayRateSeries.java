@@ -0,0 +1,86 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.RateSeries;
+
+import java.util.Arrays;
+
+/**
+ * {@link RateSeries} backed by two parallel primitive arrays, 12 bytes per daily rate.
+ */
+public final class ArrayRateSeries implements RateSeries {
+
+    private final int[] days;
+    private final long[] rates;
+
+    /**
+     * @param days  epoch days in ascending order
+     * @param rates rates scaled by {@link RateSeries#RATE_SCALE}, parallel to {@code days}
+     */
+    public ArrayRateSeries(int[] days, long[] rates) {
+        if (days.length != rates.length) {
+            throw new IllegalArgumentException("days and rates must have the same length");
+        }
+        this.days = days;
+        this.rates = rates;
+    }
+
+    @Override
+    public int size() {
+        return days.length;
+    }
+
+    @Override
+    public int dayAt(int index) {
+        return days[index];
+    }
+
+    @Override
+    public long rateAt(int index) {
+        return rates[index];
+    }
+
+    /**
+     * Collects rates in any order and builds a series sorted by day. When a day is added twice
+     * the last rate wins.
+     */
+    public static final class Builder {
+
+        private int[] days = new int[256];
+        private long[] rates = new long[256];
+        private int size;
+
+        public Builder add(int epochDay, long rate) {
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            days[size] = epochDay;
+            rates[size] = rate;
+            size++;
+            return this;
+        }
+
+        public ArrayRateSeries build() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // stable sort keeps insertion order for equal days so the last one can win below
+            Arrays.sort(order, (a, b) -> Integer.compare(days[a], days[b]));
+            int[] sortedDays = new int[size];
+            long[] sortedRates = new long[size];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int source = order[i];
+                if (count > 0 && sortedDays[count - 1] == days[source]) {
+                    sortedRates[count - 1] = rates[source];
+                } else {
+                    sortedDays[count] = days[source];
+                    sortedRates[count] = rates[source];
+                    count++;
+                }
+            }
+            return new ArrayRateSeries(Arrays.copyOf(sortedDays, count), Arrays.copyOf(sortedRates, count));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * The rates shipped in json/currencyexchange.json. They carry no date, so they are treated as
+ * the oldest rates available and only served for currencies no other provider quotes. They also
+ * supply the country and description of the currencies other providers only give a rate for.
+ */
+@Component
+@Order(300)
+public class ClasspathRateProvider implements RateProvider {
+
+    private final ObjectMapper mapper;
+
+    private volatile ProvidedRates rates;
+
+    public ClasspathRateProvider(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String getName() {
+        return "classpath";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public ProvidedRates fetch() throws IOException {
+        if (rates == null) {
+            try (InputStream in = new ClassPathResource("json/currencyexchange.json").getInputStream()) {
+                rates = new ProvidedRates(Instant.EPOCH, Arrays.asList(mapper.readValue(in, CurrencyExchangeDTO[].class)));
+            }
+        }
+        return rates;
+    }
+}
@@ -1,66 +1,69 @@
 package com.currency.exchange.repository.impl;
 
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.RateSnapshotPublishedEvent;
 import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.currency.exchange.repository.CurrencyExchangeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class CurrencyExchangeRepositoryImpl implements CurrencyExchangeRepository {
 
     private Logger logger = LoggerFactory.getLogger(CurrencyExchangeRepositoryImpl.class);
 
-    private static final  Map<String, Integer> currencyVsNoOfRequest = new HashMap<>();
-
-
     @Autowired
-    private ObjectMapper mapper;
-
-    private List<CurrencyExchangeDTO> currencyExchangeDTOS;
+    private ApplicationEventPublisher eventPublisher;
 
+    private final AtomicReference<RateSnapshot> snapshot = new AtomicReference<>(RateSnapshot.EMPTY);
 
     @Override
     public List<CurrencyExchangeDTO> findAll() {
-        return getData();
+        return snapshot.get().getCurrencies();
     }
 
     @Override
     public Optional<CurrencyExchangeDTO> findByCurrency(String currency) {
-        return getData().stream().filter(each -> {
-            verifyAndUpdateNoOfRequest(each.getCurrency());
-            return currency != null && each.getCurrency().equals(currency);
-        }).findAny();
+        RateSnapshot current = snapshot.get();
+        int ordinal = current.indexOf(currency);
+        if (ordinal < 0) {
+            return Optional.empty();
+        }
+        current.recordRequest(ordinal);
+        return Optional.of(current.get(ordinal));
     }
 
     @Override
     public Map<String, Integer> getCurrencyVsNoOfRequest() {
-        if(currencyVsNoOfRequest.isEmpty()) {
-            List<CurrencyExchangeDTO> data = getData();
-            data.stream().forEach(each -> currencyVsNoOfRequest.put(each.getCurrency(), 0));
+        RateSnapshot current = snapshot.get();
+        Map<String, Integer> currencyVsNoOfRequest = new HashMap<>();
+        for (int i = 0; i < current.size(); i++) {
+            currencyVsNoOfRequest.put(current.get(i).getCurrency(), (int) Math.min(Integer.MAX_VALUE, current.getNoOfRequests(i)));
         }
-        return new HashMap<>(currencyVsNoOfRequest);
+        return currencyVsNoOfRequest;
     }
 
-    private List<CurrencyExchangeDTO> getData() {
-        try {
-            return Arrays.asList(mapper.readValue(new ClassPathResource("json/currencyexchange.json").getInputStream(), CurrencyExchangeDTO[].class));
-        } catch (IOException e) {
-            logger.error("An error occurred while reading the currency json file", e);
-        }
-        return new ArrayList<>();
+    @Override
+    public RateSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
-    private void verifyAndUpdateNoOfRequest(String currency) {
-        if (currencyVsNoOfRequest.containsKey(currency)) {
-            Integer counter = currencyVsNoOfRequest.get(currency);
-            currencyVsNoOfRequest.put(currency, counter+1);
-        }
+    @Override
+    public RateSnapshot publish(List<CurrencyExchangeDTO> data) {
+        RateSnapshot previous;
+        RateSnapshot published;
+        do {
+            previous = snapshot.get();
+            published = RateSnapshot.of(previous.getVersion() + 1, data, previous);
+        } while (!snapshot.compareAndSet(previous, published));
+        logger.info("Published rate snapshot version {} with {} currencies", published.getVersion(), published.size());
+        eventPublisher.publishEvent(new RateSnapshotPublishedEvent(previous, published));
+        return published;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.repository.CurrencyCodes;
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches the ECB eurofxref XML feed from {@link ApplicationProperties#getFeedUrl()} and provides
+ * the newest day of rates, as of the 16:00 CET publication of that day. Requests are conditional
+ * on the feed's ETag and Last-Modified headers, so an unchanged feed costs a 304 and no parsing.
+ * A feed that can't be fetched, parsed or validated fails the fetch, the aggregator keeps using
+ * the last good rates.
+ */
+@Component
+@Order(100)
+public class EcbRateFeedProvider implements RateProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EcbRateFeedProvider.class);
+
+    static final String DAILY_FEED = "/eurofxref-daily.xml";
+
+    /** The ECB publishes its reference rates around 16:00 CET. */
+    private static final LocalTime PUBLICATION_TIME = LocalTime.of(16, 0);
+    private static final ZoneId PUBLICATION_ZONE = ZoneId.of("Europe/Berlin");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = newXmlInputFactory();
+
+    private final ApplicationProperties properties;
+    private final CurrencyExchangeMetrics metrics;
+
+    private HttpClient client;
+
+    private String etag;
+    private String lastModified;
+    private ProvidedRates lastRates;
+
+    public EcbRateFeedProvider(ApplicationProperties properties, CurrencyExchangeMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return "ecb";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return properties.getFeedUrl() != null && !properties.getFeedUrl().isBlank();
+    }
+
+    /**
+     * Fetches the feed, returning the previously parsed rates when it is unchanged.
+     */
+    @Override
+    public synchronized ProvidedRates fetch() throws IOException {
+        URI feed = URI.create(properties.getFeedUrl().replaceAll("/+$", "") + DAILY_FEED);
+        if (client == null) {
+            client = HttpClient.newBuilder()
+                    .connectTimeout(properties.getFeedTimeout())
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(feed).timeout(properties.getFeedTimeout()).GET();
+        if (lastRates != null && etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastRates != null && lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            metrics.recordFeedFailure("fetch");
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching the rate feed " + feed);
+        }
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 304) {
+                metrics.recordFeedFetch(System.nanoTime() - start);
+                return lastRates;
+            }
+            if (response.statusCode() != 200) {
+                metrics.recordFeedFailure("fetch");
+                throw new IOException("Could not fetch the rate feed " + feed + ": HTTP " + response.statusCode());
+            }
+            long parseStart = System.nanoTime();
+            DailyRates rates = parse(feed, body);
+            long parsed = System.nanoTime();
+            metrics.recordFeedFetch(parseStart - start);
+            metrics.recordFeedParse(parsed - parseStart);
+
+            etag = response.headers().firstValue("ETag").orElse(null);
+            lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+            lastRates = toProvidedRates(rates);
+            LOGGER.debug("Fetched {} rates of {} from the rate feed", rates.getRates().size(), rates.getDate());
+            return lastRates;
+        }
+    }
+
+    private DailyRates parse(URI feed, InputStream body) throws IOException {
+        try {
+            return parse(body);
+        } catch (XMLStreamException e) {
+            metrics.recordFeedFailure("parse");
+            throw new IOException("Could not parse the rate feed " + feed, e);
+        } catch (InvalidFeedException e) {
+            metrics.recordFeedFailure("validation");
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a eurofxref document with one or more days of rates and returns the newest day.
+     * Both the daily and the historical feed have this layout:
+     * <pre>
+     * &lt;Cube&gt;
+     *   &lt;Cube time="2021-03-31"&gt;
+     *     &lt;Cube currency="USD" rate="1.1725"/&gt;
+     * </pre>
+     *
+     * @param in
+     * @return {@link DailyRates}
+     * @throws XMLStreamException if the document is not well-formed XML
+     * @throws InvalidFeedException if the document holds no rates or invalid rates
+     */
+    static DailyRates parse(InputStream in) throws XMLStreamException, InvalidFeedException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            LocalDate newest = null;
+            Map<String, BigDecimal> newestRates = null;
+            LocalDate day = null;
+            Map<String, BigDecimal> rates = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event != XMLStreamConstants.START_ELEMENT || !"Cube".equals(reader.getLocalName())) {
+                    continue;
+                }
+                String time = reader.getAttributeValue(null, "time");
+                String currency = reader.getAttributeValue(null, "currency");
+                if (time != null) {
+                    day = parseDate(time);
+                    rates = new LinkedHashMap<>();
+                    if (newest == null || day.isAfter(newest)) {
+                        newest = day;
+                        newestRates = rates;
+                    }
+                } else if (currency != null) {
+                    if (rates == null) {
+                        throw new InvalidFeedException("Rate of " + currency + " outside of a dated Cube");
+                    }
+                    validate(day, currency, reader.getAttributeValue(null, "rate"), rates);
+                }
+            }
+            if (newest == null || newestRates.isEmpty()) {
+                throw new InvalidFeedException("The feed contains no rates");
+            }
+            return new DailyRates(newest, newestRates);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * The feed only carries rates, the country and description are filled in by the aggregator
+     * from the providers that have them.
+     */
+    static ProvidedRates toProvidedRates(DailyRates rates) {
+        List<CurrencyExchangeDTO> data = new ArrayList<>(rates.getRates().size());
+        rates.getRates().forEach((currency, rate) -> data.add(new CurrencyExchangeDTO(currency, rate, null, null)));
+        return new ProvidedRates(rates.getDate().atTime(PUBLICATION_TIME).atZone(PUBLICATION_ZONE).toInstant(), data);
+    }
+
+    private static void validate(LocalDate day, String currency, String rate, Map<String, BigDecimal> rates) throws InvalidFeedException {
+        if (!CurrencyCodes.isWellFormed(currency)) {
+            throw new InvalidFeedException("Invalid currency code '" + currency + "' on " + day);
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(rate);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new InvalidFeedException("Invalid rate '" + rate + "' of " + currency + " on " + day);
+        }
+        if (value.signum() <= 0) {
+            throw new InvalidFeedException("Non-positive rate " + rate + " of " + currency + " on " + day);
+        }
+        if (rates.put(currency, value) != null) {
+            throw new InvalidFeedException("Duplicate rate of " + currency + " on " + day);
+        }
+    }
+
+    private static LocalDate parseDate(String time) throws InvalidFeedException {
+        try {
+            return LocalDate.parse(time);
+        } catch (DateTimeParseException e) {
+            throw new InvalidFeedException("Invalid date '" + time + "'");
+        }
+    }
+
+    private static XMLInputFactory newXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // the feed comes from the network, never resolve DTDs or external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * The rates of one day of the feed, by currency in document order.
+     */
+    static final class DailyRates {
+        private final LocalDate date;
+        private final Map<String, BigDecimal> rates;
+
+        DailyRates(LocalDate date, Map<String, BigDecimal> rates) {
+            this.date = date;
+            this.rates = Collections.unmodifiableMap(rates);
+        }
+
+        LocalDate getDate() {
+            return date;
+        }
+
+        Map<String, BigDecimal> getRates() {
+            return rates;
+        }
+    }
+
+    /**
+     * Thrown when a well-formed feed holds data that must not be served.
+     */
+    static final class InvalidFeedException extends IOException {
+        InvalidFeedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Reads the external rate file configured in {@link ApplicationProperties#getRateFile()}. Its
+ * rates are as of the file's modification time. The file is watched on a dedicated thread and
+ * every change triggers a refresh, so edits are served without waiting for the next poll.
+ */
+@Component
+@Order(200)
+public class FileRateProvider implements RateProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileRateProvider.class);
+
+    /** Editors and copy tools usually fire several events per save, wait for them to settle. */
+    private static final long SETTLE_MILLIS = 100;
+
+    private final ApplicationProperties properties;
+    private final ObjectMapper mapper;
+
+    private WatchService watchService;
+
+    public FileRateProvider(ApplicationProperties properties, ObjectMapper mapper) {
+        this.properties = properties;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return properties.getRateFile() != null && !properties.getRateFile().isBlank();
+    }
+
+    /**
+     * Parses the file. A file that can't be read or holds no rates is rejected, so the last rates
+     * read from it keep being used.
+     */
+    @Override
+    public ProvidedRates fetch() throws IOException {
+        Path file = getFile();
+        Instant asOf = Files.getLastModifiedTime(file).toInstant();
+        try (InputStream in = Files.newInputStream(file)) {
+            List<CurrencyExchangeDTO> data = Arrays.asList(mapper.readValue(in, CurrencyExchangeDTO[].class));
+            if (data.isEmpty()) {
+                throw new IOException("The rate file " + file + " contains no rates");
+            }
+            return new ProvidedRates(asOf, data);
+        }
+    }
+
+    @Override
+    public void watch(Runnable onChange) throws IOException {
+        Path file = getFile();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        Thread watcherThread = new Thread(() -> watch(file, onChange), "rate-file-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        LOGGER.info("Watching {} for rate changes", file);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private Path getFile() {
+        return Paths.get(properties.getRateFile()).toAbsolutePath();
+    }
+
+    private void watch(Path file, Runnable onChange) {
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = containsChangeTo(key, fileName);
+                // drain the burst of events belonging to the same save before re-parsing
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= containsChangeTo(next, fileName);
+                }
+                if (changed && Files.isRegularFile(file)) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.debug("Rate file watcher stopped");
+        }
+    }
+
+    private boolean containsChangeTo(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,39 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.RateSeries;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link RateSeries} read in place from the columns of a memory-mapped {@link RateStore}. Only
+ * absolute reads are used, so one mapping is safely shared by every series and thread.
+ */
+final class MappedRateSeries implements RateSeries {
+
+    private final ByteBuffer buffer;
+    private final int daysOffset;
+    private final int ratesOffset;
+    private final int size;
+
+    MappedRateSeries(ByteBuffer buffer, int daysOffset, int ratesOffset, int size) {
+        this.buffer = buffer;
+        this.daysOffset = daysOffset;
+        this.ratesOffset = ratesOffset;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int dayAt(int index) {
+        return buffer.getInt(daysOffset + index * Integer.BYTES);
+    }
+
+    @Override
+    public long rateAt(int index) {
+        return buffer.getLong(ratesOffset + index * Long.BYTES);
+    }
+}
@@ -0,0 +1,325 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.repository.CurrencyCodes;
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the served rates from every enabled {@link RateProvider}. On each refresh the providers
+ * are queried in parallel and each one is waited for at most its timeout; a provider that fails
+ * or is too slow contributes the last rates it returned instead. For every currency the valid
+ * quote with the newest as-of instant wins, whatever its base currency, ties go to the better
+ * ranked provider. A snapshot is only published when the selected rates differ from the ones
+ * being served.
+ * <p>
+ * Refreshes run at startup, every {@link ApplicationProperties#getRefreshInterval()} on a
+ * dedicated scheduler thread and whenever a watching provider reports a change.
+ */
+@Component
+public class RateAggregator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateAggregator.class);
+
+    private final List<RateProvider> providers;
+    private final CurrencyExchangeRepository repository;
+    private final ApplicationProperties properties;
+    private final CurrencyExchangeMetrics metrics;
+
+    /** At most one fetch per provider is running, a refresh joins a fetch that is still going. */
+    private final Map<String, CompletableFuture<ProvidedRates>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ProvidedRates> lastGood = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> selected = new ConcurrentHashMap<>();
+
+    private List<RateProvider> enabled = Collections.emptyList();
+    private ExecutorService fetchExecutor;
+    private ScheduledExecutorService scheduler;
+
+    public RateAggregator(List<RateProvider> providers, CurrencyExchangeRepository repository, ApplicationProperties properties,
+                          CurrencyExchangeMetrics metrics) {
+        this.providers = providers;
+        this.repository = repository;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        enabled = providers.stream().filter(RateProvider::isEnabled).collect(Collectors.toList());
+        // bounded by the number of providers, since fetches of the same provider never overlap
+        fetchExecutor = Executors.newCachedThreadPool(daemonThreads("rate-provider"));
+        for (RateProvider provider : enabled) {
+            String name = provider.getName();
+            AtomicInteger currencies = selected.computeIfAbsent(name, key -> new AtomicInteger());
+            metrics.registerProvider(name, () -> asOf(name), currencies::get);
+        }
+        refresh();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("rate-refresh"));
+        long interval = properties.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        for (RateProvider provider : enabled) {
+            provider.watch(() -> scheduler.execute(this::refreshQuietly));
+        }
+        LOGGER.info("Refreshing rates from {} every {}", enabled.stream().map(RateProvider::getName).collect(Collectors.toList()),
+                properties.getRefreshInterval());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queries every provider and publishes the freshest rates if they changed.
+     *
+     * @return the published snapshot, or null if nothing was published
+     */
+    public synchronized RateSnapshot refresh() {
+        long start = System.nanoTime();
+        Map<RateProvider, CompletableFuture<ProvidedRates>> pending = new LinkedHashMap<>();
+        for (RateProvider provider : enabled) {
+            pending.put(provider, fetch(provider));
+        }
+        List<ProviderRates> results = new ArrayList<>(pending.size());
+        pending.forEach((provider, future) -> {
+            ProvidedRates rates = await(provider.getName(), future, start);
+            if (rates != null) {
+                results.add(new ProviderRates(provider.getName(), rates));
+            }
+        });
+
+        RateSnapshot served = repository.getSnapshot();
+        List<CurrencyExchangeDTO> current = served == null ? Collections.emptyList() : served.getCurrencies();
+        Selection selection = select(results, current);
+        if (selection.getRejected() > 0) {
+            LOGGER.warn("Ignored {} invalid rates returned by the rate providers", selection.getRejected());
+        }
+        if (selection.getRates().isEmpty()) {
+            LOGGER.warn("No rate provider returned valid rates, keeping the current snapshot");
+            metrics.recordReloadFailure();
+            return null;
+        }
+        selected.forEach((name, count) -> count.set(selection.getSelectedByProvider().getOrDefault(name, 0)));
+        if (selection.getRates().equals(current)) {
+            return null;
+        }
+        RateSnapshot snapshot = repository.publish(selection.getRates());
+        metrics.recordReload(System.nanoTime() - start);
+        return snapshot;
+    }
+
+    /**
+     * Picks the rate of every currency from the provider results, given in provider rank order.
+     * Currencies already served keep their position, so unchanged layouts rebuild incrementally,
+     * new currencies follow in the order the providers return them. Country and description come
+     * from the selected provider, or from the best ranked provider that has them.
+     *
+     * @param results
+     * @param current
+     * @return {@link Selection}
+     */
+    static Selection select(List<ProviderRates> results, List<CurrencyExchangeDTO> current) {
+        Map<String, CurrencyExchangeDTO> best = new LinkedHashMap<>();
+        Map<String, Instant> bestAsOf = new HashMap<>();
+        Map<String, String> bestProvider = new HashMap<>();
+        Map<String, String> countries = new HashMap<>();
+        Map<String, String> descriptions = new HashMap<>();
+        int rejected = 0;
+        for (ProviderRates result : results) {
+            Instant asOf = result.getRates().getAsOf();
+            for (CurrencyExchangeDTO rate : result.getRates().getRates()) {
+                if (!isValid(rate)) {
+                    rejected++;
+                    continue;
+                }
+                String currency = rate.getCurrency();
+                Instant selectedAsOf = bestAsOf.get(currency);
+                if (selectedAsOf == null || asOf.isAfter(selectedAsOf)) {
+                    best.put(currency, rate);
+                    bestAsOf.put(currency, asOf);
+                    bestProvider.put(currency, result.getProvider());
+                }
+                if (rate.getCountry() != null) {
+                    countries.putIfAbsent(currency, rate.getCountry());
+                }
+                if (rate.getDescription() != null) {
+                    descriptions.putIfAbsent(currency, rate.getDescription());
+                }
+            }
+        }
+
+        Set<String> order = new LinkedHashSet<>(best.size() * 2);
+        for (CurrencyExchangeDTO known : current) {
+            if (best.containsKey(known.getCurrency())) {
+                order.add(known.getCurrency());
+            }
+        }
+        order.addAll(best.keySet());
+
+        List<CurrencyExchangeDTO> rates = new ArrayList<>(order.size());
+        Map<String, Integer> selectedByProvider = new HashMap<>();
+        for (String currency : order) {
+            CurrencyExchangeDTO rate = best.get(currency);
+            rates.add(new CurrencyExchangeDTO(currency, rate.getExchangeRate(),
+                    rate.getCountry() != null ? rate.getCountry() : countries.get(currency),
+                    rate.getDescription() != null ? rate.getDescription() : descriptions.get(currency), rate.getBase()));
+            selectedByProvider.merge(bestProvider.get(currency), 1, Integer::sum);
+        }
+        return new Selection(rates, selectedByProvider, rejected);
+    }
+
+    private CompletableFuture<ProvidedRates> fetch(RateProvider provider) {
+        return inFlight.compute(provider.getName(), (name, running) -> {
+            if (running != null && !running.isDone()) {
+                return running;
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return provider.fetch();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, fetchExecutor).whenComplete((rates, error) -> {
+                // a fetch that completes after its refresh gave up on it is still used by the next one
+                if (rates != null) {
+                    lastGood.put(name, rates);
+                }
+            });
+        });
+    }
+
+    private ProvidedRates await(String provider, CompletableFuture<ProvidedRates> pending, long start) {
+        Duration timeout = properties.getProviderTimeouts().getOrDefault(provider, properties.getProviderTimeout());
+        try {
+            ProvidedRates rates = pending.get(Math.max(0, start + timeout.toNanos() - System.nanoTime()), TimeUnit.NANOSECONDS);
+            metrics.recordProviderFetch(provider, "success", System.nanoTime() - start);
+            return rates;
+        } catch (TimeoutException e) {
+            metrics.recordProviderFetch(provider, "timeout", System.nanoTime() - start);
+            LOGGER.warn("Rate provider {} did not answer within {}, using its last good rates", provider, timeout);
+        } catch (ExecutionException e) {
+            metrics.recordProviderFetch(provider, "failure", System.nanoTime() - start);
+            LOGGER.warn("Rate provider {} failed, using its last good rates: {}", provider, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return lastGood.get(provider);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic refresh
+            LOGGER.error("Rate refresh failed", e);
+            metrics.recordReloadFailure();
+        }
+    }
+
+    private Instant asOf(String provider) {
+        ProvidedRates rates = lastGood.get(provider);
+        return rates == null ? null : rates.getAsOf();
+    }
+
+    private static boolean isValid(CurrencyExchangeDTO rate) {
+        return CurrencyCodes.isWellFormed(rate.getCurrency())
+                && (rate.getBase() == null || CurrencyCodes.isWellFormed(rate.getBase()) && !rate.getBase().equals(rate.getCurrency()))
+                && rate.getExchangeRate() != null && rate.getExchangeRate().signum() > 0;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The rates one provider contributed to a refresh.
+     */
+    static final class ProviderRates {
+        private final String provider;
+        private final ProvidedRates rates;
+
+        ProviderRates(String provider, ProvidedRates rates) {
+            this.provider = provider;
+            this.rates = rates;
+        }
+
+        String getProvider() {
+            return provider;
+        }
+
+        ProvidedRates getRates() {
+            return rates;
+        }
+    }
+
+    /**
+     * The rates selected by a refresh, with the number of currencies taken from each provider.
+     */
+    static final class Selection {
+        private final List<CurrencyExchangeDTO> rates;
+        private final Map<String, Integer> selectedByProvider;
+        private final int rejected;
+
+        Selection(List<CurrencyExchangeDTO> rates, Map<String, Integer> selectedByProvider, int rejected) {
+            this.rates = rates;
+            this.selectedByProvider = selectedByProvider;
+            this.rejected = rejected;
+        }
+
+        List<CurrencyExchangeDTO> getRates() {
+            return rates;
+        }
+
+        Map<String, Integer> getSelectedByProvider() {
+            return selectedByProvider;
+        }
+
+        int getRejected() {
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateHistoryRepository;
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads daily EUR reference rates from a CSV file in the layout of the ECB's eurofxref-hist.csv:
+ * a header {@code Date,USD,JPY,...} followed by one row per business day, {@code N/A} where a
+ * currency wasn't quoted. When a {@link RateStore} is configured its history is memory-mapped
+ * instead and nothing is parsed. A file with a malformed row is rejected as a whole, the service
+ * then starts without history rather than with a partial one.
+ */
+@Component
+public class RateHistoryRepositoryImpl implements RateHistoryRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateHistoryRepositoryImpl.class);
+
+    static final String CLASSPATH_HISTORY = "history/eurofxref-hist.csv";
+
+    private final ApplicationProperties properties;
+
+    private volatile RateHistory history = RateHistory.EMPTY;
+
+    public RateHistoryRepositoryImpl(ApplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void loadHistory() {
+        String rateStore = properties.getRateStore();
+        if (rateStore != null && !rateStore.isBlank()) {
+            try {
+                history = RateStore.open(Paths.get(rateStore)).getHistory();
+                LOGGER.info("Mapped rate history for {} currencies from {}", history.getSeries().size(), rateStore);
+                return;
+            } catch (IOException e) {
+                LOGGER.error("An error occurred while mapping the rate store {}, reading the rate history instead", rateStore, e);
+            }
+        }
+        String historyFile = properties.getHistoryFile();
+        try (InputStream in = historyFile == null || historyFile.isBlank()
+                ? new ClassPathResource(CLASSPATH_HISTORY).getInputStream()
+                : Files.newInputStream(Paths.get(historyFile))) {
+            history = parse(in);
+            LOGGER.info("Loaded rate history for {} currencies", history.getSeries().size());
+        } catch (IOException e) {
+            LOGGER.error("An error occurred while reading the rate history", e);
+        }
+    }
+
+    @Override
+    public RateHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * @throws IOException if the history can't be read or a row is malformed, naming its line
+     */
+    static RateHistory parse(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            return RateHistory.EMPTY;
+        }
+        String[] currencies = header.split(",");
+        ArrayRateSeries.Builder[] builders = new ArrayRateSeries.Builder[currencies.length];
+        for (int column = 1; column < currencies.length; column++) {
+            currencies[column] = currencies[column].trim();
+            if (!currencies[column].isEmpty()) {
+                builders[column] = new ArrayRateSeries.Builder();
+            }
+        }
+
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                parseRow(line, builders);
+            } catch (DateTimeParseException | ArithmeticException | NumberFormatException e) {
+                throw new IOException("Malformed rate history line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        Map<String, RateSeries> series = new HashMap<>();
+        for (int column = 1; column < builders.length; column++) {
+            if (builders[column] != null) {
+                ArrayRateSeries rates = builders[column].build();
+                if (rates.size() > 0) {
+                    series.put(currencies[column], rates);
+                }
+            }
+        }
+        return new RateHistory(series);
+    }
+
+    private static void parseRow(String line, ArrayRateSeries.Builder[] builders) {
+        String[] values = line.split(",");
+        // a row of separators only splits into no values at all
+        int epochDay = (int) LocalDate.parse(values.length == 0 ? "" : values[0].trim()).toEpochDay();
+        for (int column = 1; column < values.length && column < builders.length; column++) {
+            String value = values[column].trim();
+            if (builders[column] != null && !value.isEmpty() && !"N/A".equals(value)) {
+                builders[column].add(epochDay, toScaledRate(value));
+            }
+        }
+    }
+
+    /**
+     * @return the EUR rate scaled by {@link RateSeries#RATE_SCALE}, rates are divided by so they must stay positive
+     */
+    private static long toScaledRate(String value) {
+        BigDecimal rate = new BigDecimal(value);
+        if (rate.signum() <= 0) {
+            throw new NumberFormatException("The rate " + value + " is not positive");
+        }
+        long scaled = rate.setScale(RateSeries.RATE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        if (scaled == 0) {
+            throw new NumberFormatException("The rate " + value + " rounds to 0 at " + RateSeries.RATE_SCALE + " places");
+        }
+        return scaled;
+    }
+}
@@ -0,0 +1,359 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Binary rate store holding a rate snapshot and the daily rate history, read by memory-mapping
+ * the file and answering lookups straight from the mapping. Nothing is copied onto the heap at
+ * startup besides the header, the directory and the snapshot, and the history lives off-heap in
+ * the page cache. Every series is checked once when the store is opened, with one sequential
+ * pass over its columns, since lookups binary search the days and divide by the rates.
+ * <p>
+ * All values are little-endian, offsets are in bytes from the start of the file:
+ * <pre>
+ * header, 64 bytes
+ *    0 int    magic "CXRS"
+ *    4 short  major version, readers reject any other major version
+ *    6 short  minor version, only adds fields to the reserved header bytes
+ *    8 int    header size
+ *   12 int    number of currencies with history
+ *   16 long   snapshot as-of, epoch millis
+ *   24 int    number of snapshot currencies
+ *   28 int    history directory offset
+ *   32 int    snapshot offset
+ *   36 int    string table offset
+ *   40 int    string table length
+ *   44        reserved
+ * history directory, 16 bytes per currency in code order
+ *    0 byte[3] currency code, ASCII
+ *    3 byte    padding
+ *    4 int     days offset, size ints: epoch days in strictly ascending order
+ *    8 int     rates offset, size longs: positive rates scaled by {@link RateSeries#RATE_SCALE}, 8-byte aligned
+ *   12 int     size
+ * snapshot, 20 bytes per currency in snapshot order
+ *    0 byte[3] currency code, ASCII
+ *    3 byte    scale of the rate
+ *    4 long    unscaled rate, positive
+ *   12 int     country offset in the string table, -1 if absent
+ *   16 int     description offset in the string table, -1 if absent
+ * string table: unsigned short length followed by that many UTF-8 bytes
+ * </pre>
+ * Offsets are ints, so a store is limited to 2 GB, about 175 million daily rates.
+ */
+public final class RateStore {
+
+    static final int MAGIC = 0x53525843; // "CXRS" read as a little-endian int
+    static final short MAJOR_VERSION = 1;
+    static final short MINOR_VERSION = 0;
+    static final int HEADER_SIZE = 64;
+    static final int DIRECTORY_ENTRY_SIZE = 16;
+    static final int SNAPSHOT_ENTRY_SIZE = 20;
+
+    private final Instant asOf;
+    private final List<CurrencyExchangeDTO> snapshot;
+    private final RateHistory history;
+
+    private RateStore(Instant asOf, List<CurrencyExchangeDTO> snapshot, RateHistory history) {
+        this.asOf = asOf;
+        this.snapshot = snapshot;
+        this.history = history;
+    }
+
+    /**
+     * Maps a store file. The mapping outlives the channel and is released when the store is
+     * garbage collected.
+     *
+     * @param file
+     * @return {@link RateStore}
+     * @throws IOException if the file can't be read or is not a valid store of a supported version
+     */
+    public static RateStore open(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The rate store " + file + " is larger than 2 GB");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            return read(buffer);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("The rate store " + file + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Writes a store file. The file is written next to the target and moved over it, so a store
+     * being mapped by a running instance is never modified in place. Snapshot rates have to be
+     * quoted against EUR.
+     *
+     * @param file
+     * @param asOf     instant the snapshot rates are valid as of
+     * @param snapshot
+     * @param history
+     * @throws IOException
+     */
+    public static void write(Path file, Instant asOf, List<CurrencyExchangeDTO> snapshot, RateHistory history) throws IOException {
+        ByteBuffer buffer = encode(asOf, snapshot, history);
+        Path directory = file.toAbsolutePath().getParent();
+        Path staged = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(staged, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public List<CurrencyExchangeDTO> getSnapshot() {
+        return snapshot;
+    }
+
+    public ProvidedRates getProvidedRates() {
+        return new ProvidedRates(asOf, snapshot);
+    }
+
+    public RateHistory getHistory() {
+        return history;
+    }
+
+    private static RateStore read(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a rate store");
+        }
+        short major = buffer.getShort(4);
+        if (major != MAJOR_VERSION) {
+            throw new IOException("Unsupported rate store version " + major + "." + buffer.getShort(6)
+                    + ", expected " + MAJOR_VERSION + ".x");
+        }
+        int currencies = buffer.getInt(12);
+        Instant asOf = Instant.ofEpochMilli(buffer.getLong(16));
+        int snapshotSize = buffer.getInt(24);
+        int directoryOffset = buffer.getInt(28);
+        int snapshotOffset = buffer.getInt(32);
+        int stringsOffset = buffer.getInt(36);
+        int stringsLength = buffer.getInt(40);
+        checkBounds(buffer, directoryOffset, (long) currencies * DIRECTORY_ENTRY_SIZE);
+        checkBounds(buffer, snapshotOffset, (long) snapshotSize * SNAPSHOT_ENTRY_SIZE);
+        checkBounds(buffer, stringsOffset, stringsLength);
+
+        Map<String, RateSeries> series = new HashMap<>(currencies * 2);
+        for (int i = 0; i < currencies; i++) {
+            int entry = directoryOffset + i * DIRECTORY_ENTRY_SIZE;
+            int daysOffset = buffer.getInt(entry + 4);
+            int ratesOffset = buffer.getInt(entry + 8);
+            int size = buffer.getInt(entry + 12);
+            checkBounds(buffer, daysOffset, (long) size * Integer.BYTES);
+            checkBounds(buffer, ratesOffset, (long) size * Long.BYTES);
+            MappedRateSeries rates = new MappedRateSeries(buffer, daysOffset, ratesOffset, size);
+            String currency = readCode(buffer, entry);
+            String invalid = checkSeries(rates);
+            if (invalid != null) {
+                throw new IOException("The history of " + currency + " is corrupt, it " + invalid);
+            }
+            series.put(currency, rates);
+        }
+
+        ByteBuffer strings = buffer.duplicate().position(stringsOffset).limit(stringsOffset + stringsLength).slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+        List<CurrencyExchangeDTO> snapshot = new ArrayList<>(snapshotSize);
+        for (int i = 0; i < snapshotSize; i++) {
+            int entry = snapshotOffset + i * SNAPSHOT_ENTRY_SIZE;
+            BigDecimal rate = BigDecimal.valueOf(buffer.getLong(entry + 4), buffer.get(entry + 3));
+            if (rate.signum() <= 0) {
+                throw new IOException("The snapshot rate of " + readCode(buffer, entry) + " is corrupt, " + rate + " is not positive");
+            }
+            snapshot.add(new CurrencyExchangeDTO(readCode(buffer, entry), rate,
+                    readString(strings, buffer.getInt(entry + 12)), readString(strings, buffer.getInt(entry + 16))));
+        }
+        return new RateStore(asOf, Collections.unmodifiableList(snapshot), new RateHistory(series));
+    }
+
+    private static ByteBuffer encode(Instant asOf, List<CurrencyExchangeDTO> snapshot, RateHistory history) {
+        Map<String, RateSeries> series = new TreeMap<>(history.getSeries());
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int stringsLength = 0;
+        for (CurrencyExchangeDTO rate : snapshot) {
+            for (String value : new String[]{rate.getCountry(), rate.getDescription()}) {
+                if (value != null && !strings.containsKey(value)) {
+                    strings.put(value, stringsLength);
+                    stringsLength += Short.BYTES + encodedLength(value);
+                }
+            }
+        }
+
+        int directoryOffset = HEADER_SIZE;
+        long offset = directoryOffset + (long) series.size() * DIRECTORY_ENTRY_SIZE;
+        int snapshotOffset = (int) offset;
+        offset += (long) snapshot.size() * SNAPSHOT_ENTRY_SIZE;
+        int stringsOffset = (int) offset;
+        offset = align(offset + stringsLength);
+        long[] daysOffsets = new long[series.size()];
+        long[] ratesOffsets = new long[series.size()];
+        int index = 0;
+        for (RateSeries rates : series.values()) {
+            // rates first so every long column stays 8-byte aligned
+            ratesOffsets[index] = offset;
+            offset += (long) rates.size() * Long.BYTES;
+            daysOffsets[index] = offset;
+            offset = align(offset + (long) rates.size() * Integer.BYTES);
+            index++;
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The rates don't fit in a 2 GB rate store");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC)
+                .putShort(4, MAJOR_VERSION)
+                .putShort(6, MINOR_VERSION)
+                .putInt(8, HEADER_SIZE)
+                .putInt(12, series.size())
+                .putLong(16, asOf.toEpochMilli())
+                .putInt(24, snapshot.size())
+                .putInt(28, directoryOffset)
+                .putInt(32, snapshotOffset)
+                .putInt(36, stringsOffset)
+                .putInt(40, stringsLength);
+
+        index = 0;
+        for (Map.Entry<String, RateSeries> each : series.entrySet()) {
+            int entry = directoryOffset + index * DIRECTORY_ENTRY_SIZE;
+            RateSeries rates = each.getValue();
+            String invalid = checkSeries(rates);
+            if (invalid != null) {
+                throw new IllegalArgumentException("The history of " + each.getKey() + " " + invalid);
+            }
+            putCode(buffer, entry, each.getKey());
+            buffer.putInt(entry + 4, (int) daysOffsets[index])
+                    .putInt(entry + 8, (int) ratesOffsets[index])
+                    .putInt(entry + 12, rates.size());
+            for (int i = 0; i < rates.size(); i++) {
+                buffer.putInt((int) daysOffsets[index] + i * Integer.BYTES, rates.dayAt(i));
+                buffer.putLong((int) ratesOffsets[index] + i * Long.BYTES, rates.rateAt(i));
+            }
+            index++;
+        }
+
+        for (int i = 0; i < snapshot.size(); i++) {
+            CurrencyExchangeDTO rate = snapshot.get(i);
+            if (rate.getBase() != null && !"EUR".equals(rate.getBase())) {
+                throw new IllegalArgumentException("The rate of " + rate.getCurrency() + " is quoted against " + rate.getBase()
+                        + ", a rate store only holds EUR rates");
+            }
+            BigDecimal value = rate.getExchangeRate().stripTrailingZeros();
+            if (value.scale() < 0) {
+                value = value.setScale(0);
+            }
+            if (value.signum() <= 0) {
+                throw new IllegalArgumentException("The rate " + rate.getExchangeRate() + " of " + rate.getCurrency() + " is not positive");
+            }
+            if (value.scale() > Byte.MAX_VALUE || value.unscaledValue().bitLength() >= Long.SIZE) {
+                throw new IllegalArgumentException("The rate " + rate.getExchangeRate() + " of " + rate.getCurrency()
+                        + " doesn't fit in a rate store");
+            }
+            int entry = snapshotOffset + i * SNAPSHOT_ENTRY_SIZE;
+            putCode(buffer, entry, rate.getCurrency());
+            buffer.put(entry + 3, (byte) value.scale())
+                    .putLong(entry + 4, value.unscaledValue().longValue())
+                    .putInt(entry + 12, rate.getCountry() == null ? -1 : strings.get(rate.getCountry()))
+                    .putInt(entry + 16, rate.getDescription() == null ? -1 : strings.get(rate.getDescription()));
+        }
+
+        strings.forEach((value, stringOffset) -> {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort(stringsOffset + stringOffset, (short) bytes.length);
+            buffer.position(stringsOffset + stringOffset + Short.BYTES);
+            buffer.put(bytes);
+        });
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @return why the series breaks the format's invariants, null if it doesn't
+     */
+    private static String checkSeries(RateSeries rates) {
+        for (int i = 0; i < rates.size(); i++) {
+            if (rates.rateAt(i) <= 0) {
+                return "has the rate " + rates.decimalRateAt(i) + " that is not positive at " + i;
+            }
+            if (i > 0 && rates.dayAt(i) <= rates.dayAt(i - 1)) {
+                return "is not in ascending date order at " + i;
+            }
+        }
+        return null;
+    }
+
+    private static int encodedLength(String value) {
+        int length = value.getBytes(StandardCharsets.UTF_8).length;
+        if (length > 0xFFFF) {
+            throw new IllegalArgumentException("The text '" + value.substring(0, 32) + "...' is too long for a rate store");
+        }
+        return length;
+    }
+
+    private static long align(long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static void putCode(ByteBuffer buffer, int offset, String currency) {
+        byte[] code = currency.getBytes(StandardCharsets.US_ASCII);
+        if (code.length != 3) {
+            throw new IllegalArgumentException("Invalid currency code '" + currency + "'");
+        }
+        buffer.put(offset, code[0]).put(offset + 1, code[1]).put(offset + 2, code[2]);
+    }
+
+    private static String readCode(ByteBuffer buffer, int offset) {
+        return new String(new byte[]{buffer.get(offset), buffer.get(offset + 1), buffer.get(offset + 2)}, StandardCharsets.US_ASCII);
+    }
+
+    private static String readString(ByteBuffer strings, int offset) {
+        if (offset < 0) {
+            return null;
+        }
+        int length = Short.toUnsignedInt(strings.getShort(offset));
+        byte[] bytes = new byte[length];
+        strings.duplicate().position(offset + Short.BYTES).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkBounds(ByteBuffer buffer, int offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IOException("The rate store is truncated");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Converts a rate file in the layout of json/currencyexchange.json and a rate history in the
+ * layout of eurofxref-hist.csv into a {@link RateStore}:
+ * <pre>
+ * java -cp currency-exchange.jar -Dloader.main=com.currency.exchange.repository.impl.RateStoreConverter \
+ *     org.springframework.boot.loader.PropertiesLauncher rates.store [rates.json] [history.csv]
+ * </pre>
+ * The rates and the history default to the ones shipped on the classpath. The snapshot is as of
+ * the modification time of the rate file, or the epoch for the classpath rates.
+ */
+public final class RateStoreConverter {
+
+    private RateStoreConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: RateStoreConverter <store> [rates.json] [history.csv]");
+            System.exit(2);
+        }
+        Path store = Paths.get(args[0]);
+        Path rateFile = args.length > 1 ? Paths.get(args[1]) : null;
+        Path historyFile = args.length > 2 ? Paths.get(args[2]) : null;
+
+        List<CurrencyExchangeDTO> rates;
+        try (InputStream in = rateFile == null ? new ClassPathResource("json/currencyexchange.json").getInputStream() : Files.newInputStream(rateFile)) {
+            rates = Arrays.asList(new ObjectMapper().readValue(in, CurrencyExchangeDTO[].class));
+        }
+        RateHistory history;
+        try (InputStream in = historyFile == null ? new ClassPathResource(RateHistoryRepositoryImpl.CLASSPATH_HISTORY).getInputStream() : Files.newInputStream(historyFile)) {
+            history = RateHistoryRepositoryImpl.parse(in);
+        }
+        Instant asOf = rateFile == null ? Instant.EPOCH : Files.getLastModifiedTime(rateFile).toInstant();
+
+        RateStore.write(store, asOf, rates, history);
+        System.out.println("Wrote " + rates.size() + " rates and the history of " + history.getSeries().size()
+                + " currencies to " + store + " (" + Files.size(store) + " bytes)");
+    }
+}
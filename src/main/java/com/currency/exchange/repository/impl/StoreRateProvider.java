@@ -0,0 +1,45 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The snapshot of the {@link RateStore} configured in {@link ApplicationProperties#getRateStore()},
+ * as of the instant it was written with. The store is mapped once, it is immutable.
+ */
+@Component
+@Order(250)
+public class StoreRateProvider implements RateProvider {
+
+    private final ApplicationProperties properties;
+
+    private volatile ProvidedRates rates;
+
+    public StoreRateProvider(ApplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public String getName() {
+        return "store";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return properties.getRateStore() != null && !properties.getRateStore().isBlank();
+    }
+
+    @Override
+    public ProvidedRates fetch() throws IOException {
+        if (rates == null) {
+            rates = RateStore.open(Paths.get(properties.getRateStore())).getProvidedRates();
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,76 @@
+package com.currency.exchange.rest;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit of the requests served at once, adapted to their measured latency. While requests
+ * complete within the target latency and the limit is reached, it grows by one up to the
+ * configured maximum; when a request takes longer it shrinks by a tenth, at most once per target
+ * latency so one slow burst doesn't collapse it. Requests above the limit are shed at once
+ * instead of queueing behind the slow ones. Without a target latency the limit stays at the
+ * maximum. All state is kept in atomics, admission is an increment and a comparison.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private static final int MIN_LIMIT = 1;
+
+    private final int maxLimit;
+    private final long targetNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    private final AtomicLong lastDecrease;
+
+    /**
+     * @param maxLimit    most requests ever served at once
+     * @param targetNanos latency above which the limit is lowered, 0 to keep it at the maximum
+     * @param clock       nanosecond time source, {@link System#nanoTime()} outside of tests
+     */
+    AdaptiveConcurrencyLimit(int maxLimit, long targetNanos, LongSupplier clock) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.targetNanos = targetNanos;
+        this.clock = clock;
+        this.limit = new AtomicInteger(this.maxLimit);
+        this.lastDecrease = new AtomicLong(clock.getAsLong() - targetNanos);
+    }
+
+    /**
+     * @return true if the request may be served, it must then be released with {@link #release(long)}
+     */
+    boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > limit.get()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param latencyNanos how long the admitted request took
+     */
+    void release(long latencyNanos) {
+        int served = inFlight.getAndDecrement();
+        if (targetNanos <= 0) {
+            return;
+        }
+        if (latencyNanos > targetNanos) {
+            long now = clock.getAsLong();
+            long last = lastDecrease.get();
+            if (now - last >= targetNanos && lastDecrease.compareAndSet(last, now)) {
+                limit.updateAndGet(current -> Math.max(MIN_LIMIT, current - Math.max(1, current / 10)));
+            }
+        } else if (served >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    int getLimit() {
+        return limit.get();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
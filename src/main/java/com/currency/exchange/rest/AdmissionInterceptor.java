@@ -0,0 +1,93 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.exception.RateLimitExceededException;
+import com.currency.exchange.exception.ServiceOverloadedException;
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the REST endpoints. A request is first charged to its client's
+ * {@link ClientRateLimiter token bucket}, then has to fit under the {@link AdaptiveConcurrencyLimit}.
+ * Rejected requests fail before any work is done, as a 429 with the seconds until the client's
+ * next token or a 503, rendered as problem+json by the error advice.
+ * <p>
+ * Clients are told apart by {@link ApplicationProperties#getClientHeader()}, set by the gateway
+ * in front of the service, and by their address when a request doesn't carry it. Both limits are
+ * off unless configured.
+ * <p>
+ * An asynchronous request, like a streamed conversion, is admitted once and holds its place
+ * under the concurrency limit until its response completes.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ADMITTED_AT = AdmissionInterceptor.class.getName() + ".admittedAt";
+
+    private final CurrencyExchangeMetrics metrics;
+    private final String clientHeader;
+    private final ClientRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public AdmissionInterceptor(ApplicationProperties properties, CurrencyExchangeMetrics metrics) {
+        this.metrics = metrics;
+        this.clientHeader = properties.getClientHeader();
+        this.rateLimiter = properties.getClientRateLimit() > 0
+                ? new ClientRateLimiter(properties.getClientRateLimit(), properties.getClientBurst(), System::nanoTime)
+                : null;
+        this.concurrencyLimit = properties.getMaxConcurrentRequests() > 0
+                ? new AdaptiveConcurrencyLimit(properties.getMaxConcurrentRequests(), properties.getSheddingLatency().toNanos(), System::nanoTime)
+                : null;
+        metrics.registerAdmission(properties.getClientRateLimit(), properties.getClientBurst(),
+                rateLimiter == null ? () -> 0 : () -> (int) rateLimiter.clients(),
+                concurrencyLimit == null ? () -> 0 : concurrencyLimit::getLimit,
+                concurrencyLimit == null ? () -> 0 : concurrencyLimit::getInFlight);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws RateLimitExceededException, ServiceOverloadedException {
+        if (request.getAttribute(ADMITTED_AT) != null) {
+            // dispatch of an already admitted asynchronous request
+            return true;
+        }
+        if (rateLimiter != null) {
+            String client = clientOf(request);
+            long wait = rateLimiter.tryAcquire(client);
+            if (wait > 0) {
+                metrics.recordAdmissionRejected(false);
+                throw new RateLimitExceededException("Rate limit exceeded for client " + client,
+                        (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+        if (concurrencyLimit != null && !concurrencyLimit.tryAcquire()) {
+            metrics.recordAdmissionRejected(true);
+            throw new ServiceOverloadedException("Too many requests in progress, try again later");
+        }
+        request.setAttribute(ADMITTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object admittedAt = request.getAttribute(ADMITTED_AT);
+        if (admittedAt != null) {
+            request.removeAttribute(ADMITTED_AT);
+            if (concurrencyLimit != null) {
+                concurrencyLimit.release(System.nanoTime() - (Long) admittedAt);
+            }
+        }
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isEmpty() ? request.getRemoteAddr() : client;
+    }
+}
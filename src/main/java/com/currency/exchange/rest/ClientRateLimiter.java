@@ -0,0 +1,73 @@
+package com.currency.exchange.rest;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket per client. A bucket is kept as the single time at which it will be full again,
+ * the theoretical arrival time of the generic cell rate algorithm, so taking a token is one
+ * compare-and-set on an {@link AtomicLong} and buckets need no refill thread. A request is
+ * admitted while that time is at most {@code burst - 1} intervals ahead of now.
+ * <p>
+ * A bucket idle for as long as it takes to refill is full, exactly like a new one, so buckets
+ * expire after that long and clients that went away cost no memory. The number of buckets is
+ * bounded on top of that, against floods of distinct client keys.
+ */
+class ClientRateLimiter {
+
+    private static final long MAX_CLIENTS = 100_000;
+
+    private final long interval;
+    private final long tolerance;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    /**
+     * @param permitsPerSecond average requests per second of a client
+     * @param burst            requests a client with a full bucket may send at once
+     * @param clock            nanosecond time source, {@link System#nanoTime()} outside of tests
+     */
+    ClientRateLimiter(double permitsPerSecond, int burst, LongSupplier clock) {
+        this.interval = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.tolerance = interval * (Math.max(1, burst) - 1);
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(MAX_CLIENTS)
+                .expireAfterAccess(Duration.ofNanos(interval + tolerance))
+                .build();
+    }
+
+    /**
+     * Takes a token of the client's bucket.
+     *
+     * @param client key of the client
+     * @return 0 if the request is admitted, otherwise the nanoseconds until the client's next token
+     */
+    long tryAcquire(String client) {
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(client, key -> new AtomicLong(now));
+        while (true) {
+            long full = bucket.get();
+            long start = Math.max(full, now);
+            long wait = start - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(full, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return number of clients currently tracked
+     */
+    long clients() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
@@ -3,91 +3,256 @@ package com.currency.exchange.rest;
 import com.currency.exchange.advice.CurrencyExchangeErrorResponse;
 import com.currency.exchange.exception.CurrencyNotFoundException;
 import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.exception.ServiceOverloadedException;
 import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
 import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
 import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
 import com.currency.exchange.service.bo.CurrencySupport;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioValuation;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CurrencyExchangeResource {
 
     private CurrencyExchangeService service;
 
-    public CurrencyExchangeResource(CurrencyExchangeService service) {
+    private RateResponseCache responseCache;
+
+    private RateSubscriptions subscriptions;
+
+    private int maxBatchSize;
+
+    public CurrencyExchangeResource(CurrencyExchangeService service, RateResponseCache responseCache, RateSubscriptions subscriptions,
+                                    ApplicationProperties properties) {
         this.service = service;
+        this.responseCache = responseCache;
+        this.subscriptions = subscriptions;
+        this.maxBatchSize = properties.getMaxBatchSize();
     }
 
     @ApiOperation(
             value="Retrieves currency exchange rate from other currencies to EURO, For example 1 USD is 0.843 EUR approximately",
-            notes = "Make a GET request to retrieve currency exchanges",
+            notes = "Make a GET request to retrieve currency exchanges, pass an ISO date to use the rate valid on that business date. "
+                    + "Current rates carry an ETag and Last-Modified of the rate snapshot and can be revalidated with If-None-Match. "
+                    + "Accept application/cbor for the compact binary encoding",
             response = CurrencyExchange.class,
             httpMethod = "GET"
     )
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencyExchange.class),
+            @ApiResponse(code = 304, message = "If the rates didn't change since the given ETag or date"),
             @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
     @GetMapping("/currency/exchange/rate/from/{from}/to/EUR")
-    public CurrencyExchange getExchangeRateToEuro(@PathVariable String from) throws InvalidCurrencyException, CurrencyNotFoundException {
-        return service.getExchangeRateToEuro(from);
+    public ResponseEntity<?> getExchangeRateToEuro(@PathVariable String from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (date != null) {
+            return ResponseEntity.ok(service.getExchangeRateToEuro(from, date));
+        }
+        return responseCache.get("rate/" + from + "/EUR", WireFormat.negotiate(accept), from, "EUR", () -> service.getExchangeRateToEuro(from));
     }
 
     @ApiOperation(
             value="Retrieves currency exchange rate from two different currency pairs",
-            notes = "Make a GET request to retrieve currency exchanges",
+            notes = "Make a GET request to retrieve currency exchanges, pass an ISO date to use the rate valid on that business date. "
+                    + "Current rates carry an ETag and Last-Modified of the rate snapshot and can be revalidated with If-None-Match. "
+                    + "Accept application/cbor for the compact binary encoding",
             response = CurrencyExchange.class,
             httpMethod = "GET"
     )
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencyExchange.class),
+            @ApiResponse(code = 304, message = "If the rates didn't change since the given ETag or date"),
             @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
     @GetMapping("/currency/exchange/rate/from/{from}/to/{to}")
-    public CurrencyExchange getExchangeRateForCurrencyPairs(@PathVariable String from, @PathVariable String to) throws InvalidCurrencyException, CurrencyNotFoundException {
-        return service.getExchangeRateFromCurrencyPairs(from,to);
+    public ResponseEntity<?> getExchangeRateForCurrencyPairs(@PathVariable String from, @PathVariable String to,
+                                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (date != null) {
+            return ResponseEntity.ok(service.getExchangeRateFromCurrencyPairs(from, to, date));
+        }
+        return responseCache.get("rate/" + from + "/" + to, WireFormat.negotiate(accept), from, to, () -> service.getExchangeRateFromCurrencyPairs(from, to));
+    }
+
+    @ApiOperation(
+            value="Subscribes to the exchange rates of currency pairs, for example USD-HUF,GBP-EUR",
+            notes = "Make a GET request accepting text/event-stream. The current rate of every pair is sent right away as a 'rate' event, "
+                    + "then again whenever a new rate snapshot changes it. Updates a slow client doesn't read in time are dropped, oldest first",
+            httpMethod = "GET"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Subscribed, rates follow as server-sent events", response = CurrencyExchange.class),
+            @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 503, message = "If there are too many subscribers", response = CurrencyExchangeErrorResponse.class)})
+    @GetMapping(value = "/currency/exchange/rates/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToExchangeRates(@RequestParam("pairs") List<String> pairs)
+            throws InvalidCurrencyException, CurrencyNotFoundException, ServiceOverloadedException {
+        return subscriptions.subscribe(pairs);
     }
 
     @ApiOperation(
             value="Retrieves the supported currencies and number of times those currencies are requested",
-            notes = "Make a GET request to retrieve supported currencies",
+            notes = "Make a GET request to retrieve supported currencies, the ETag changes with the rates and every counted request",
             response = List.class,
             httpMethod = "GET"
     )
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencySupport.class),})
+            @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencySupport.class),
+            @ApiResponse(code = 304, message = "If nothing changed since the given ETag")})
 
     @GetMapping("/currency/exchange/supported/currencies")
-    public List<CurrencySupport> getSupportedCurrencies(){
-        return service.getSupportedCurrenciesAndNoOfTimesRequested();
+    public ResponseEntity<List<CurrencySupport>> getSupportedCurrencies(){
+        return responseCache.getCounted(service::getSupportedCurrenciesAndNoOfTimesRequested);
     }
 
     @ApiOperation(
             value="Calculates the currency conversion based on the exchange rate",
-            notes = "Make a GET request to retrieve currency conversions",
-            response = CurrencySupport.class,
+            notes = "Make a GET request to retrieve currency conversions, pass an ISO date to use the rate valid on that business date. "
+                    + "Conversions at the current rates carry an ETag and Last-Modified of the rate snapshot. "
+                    + "Accept application/cbor for the compact binary encoding",
+            response = CurrencyConversion.class,
             httpMethod = "GET"
     )
     @ApiResponses(value = {
-            @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencySupport.class),
+            @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencyConversion.class),
+            @ApiResponse(code = 304, message = "If the rates didn't change since the given ETag or date"),
             @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
             @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
     @GetMapping("/exchange/conversion/from/{from}/to/{to}/quantity/{quantity}")
-    public CurrencyConversion getCurrencyConversion(@PathVariable String from, @PathVariable String to, @PathVariable BigDecimal quantity) throws InvalidCurrencyException, CurrencyNotFoundException {
-        CurrencyConversion currencyConversion = service.getCurrencyConversion(from, to, quantity);
-        return currencyConversion;
+    public ResponseEntity<?> getCurrencyConversion(@PathVariable String from, @PathVariable String to, @PathVariable BigDecimal quantity,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (date != null) {
+            return ResponseEntity.ok(service.getCurrencyConversion(from, to, quantity, date));
+        }
+        return responseCache.get("conversion/" + from + "/" + to + "/" + quantity, WireFormat.negotiate(accept), from, to, () -> service.getCurrencyConversion(from, to, quantity, null));
+    }
+
+    @ApiOperation(
+            value="Calculates the currency conversions of a batch of currency pairs and quantities",
+            notes = "Make a POST request with a list of conversions, failing items carry status and error inline. "
+                    + "Send and accept application/cbor for the compact binary encoding described by schema/currency-exchange.cddl",
+            response = CurrencyConversionResult.class,
+            responseContainer = "List",
+            httpMethod = "POST"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully calculated", response = CurrencyConversionResult.class, responseContainer = "List"),
+            @ApiResponse(code = 400, message = "If the batch has more conversions than allowed", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
+    @PostMapping("/exchange/conversion/batch")
+    public List<CurrencyConversionResult> getCurrencyConversions(@RequestBody List<CurrencyConversionRequest> requests) throws InvalidCurrencyException {
+        if (requests.size() > maxBatchSize) {
+            throw new InvalidCurrencyException("The given batch of " + requests.size() + " conversions exceeds the limit of " + maxBatchSize
+                    + ", use the conversion stream for more");
+        }
+        return service.getCurrencyConversions(requests);
+    }
+
+    @ApiOperation(
+            value="Calculates the currency conversion of many quantities for one currency pair",
+            notes = "Make a POST request with a list of quantities, as JSON or application/cbor",
+            response = CurrencyConversionColumns.class,
+            httpMethod = "POST"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully calculated", response = CurrencyConversionColumns.class),
+            @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
+    @PostMapping("/exchange/conversion/from/{from}/to/{to}/quantities")
+    public CurrencyConversionColumns getCurrencyConversions(@PathVariable String from, @PathVariable String to, @RequestBody List<BigDecimal> quantities) throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getCurrencyConversions(from, to, quantities);
+    }
+
+    @ApiOperation(
+            value="Values a portfolio of currency positions in one target currency",
+            notes = "Make a POST request with a list of {currency,amount} positions, the total comes with a subtotal per currency held. "
+                    + "All positions are valued against the same rates",
+            response = PortfolioValuation.class,
+            httpMethod = "POST"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully valued", response = PortfolioValuation.class),
+            @ApiResponse(code = 400, message = "If any inputs are missing", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 404, message = "If no currencies found for inputs", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
+    @PostMapping("/exchange/portfolio/valuation/to/{to}")
+    public PortfolioValuation getPortfolioValuation(@PathVariable String to, @RequestBody List<PortfolioPosition> positions) throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getPortfolioValuation(to, positions);
+    }
+
+    @ApiOperation(
+            value="Streams currency conversions for newline delimited JSON or CSV conversion requests",
+            notes = "Make a POST request with one {from,to,quantity} JSON object or one from,to,quantity CSV row per line, results are written back in the same format as they are computed",
+            httpMethod = "POST"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully streamed, failing lines carry status and error inline"),
+            @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
+    @PostMapping(value = "/exchange/conversion/stream", consumes = {"application/x-ndjson", "text/csv"})
+    public void getCurrencyConversions(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ConversionStreamFormat format = MediaType.parseMediaType(ConversionStreamFormat.CSV.getMediaType())
+                .includes(MediaType.parseMediaType(request.getContentType())) ? ConversionStreamFormat.CSV : ConversionStreamFormat.NDJSON;
+        response.setContentType(format.getMediaType());
+        response.setCharacterEncoding("UTF-8");
+        service.getCurrencyConversions(request.getInputStream(), response.getOutputStream(), format);
+    }
+
+    @ApiOperation(
+            value="Retrieves the exchange rates of a currency pair over a date range with min, max, mean and volatility",
+            notes = "Make a GET request with optional ISO start and end dates and an interval of daily, weekly or monthly",
+            response = CurrencyRateSeries.class,
+            httpMethod = "GET"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully retrieved", response = CurrencyRateSeries.class),
+            @ApiResponse(code = 400, message = "If any inputs are missing or invalid", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 404, message = "If no rate history found for inputs", response = CurrencyExchangeErrorResponse.class),
+            @ApiResponse(code = 500, message = "Unexpected Internal Error", response = CurrencyExchangeErrorResponse.class)})
+    @GetMapping("/exchange/history/from/{from}/to/{to}")
+    public CurrencyRateSeries getExchangeRateSeries(@PathVariable String from, @PathVariable String to,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+                                                    @RequestParam(required = false) String interval) throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getExchangeRateSeries(from, to, start, end, interval);
     }
 
 
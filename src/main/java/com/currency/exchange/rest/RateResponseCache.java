@@ -0,0 +1,193 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Conditional, pre-serialized responses computed from the current rates. Rates only change when
+ * a new {@link RateSnapshot} is published, so responses carry an ETag and Last-Modified of the
+ * snapshot, letting Spring answer a matching If-None-Match or If-Modified-Since with a 304.
+ * <p>
+ * The rendered JSON bytes of the most requested pairs and conversions are kept in a Caffeine
+ * cache bounded by {@link ApplicationProperties#getResponseCacheSize()}. Its W-TinyLFU policy
+ * only admits a new response over the eviction victim when it is requested more often, so a
+ * scan of rarely used pairs can't flush the hot ones. The cache is emptied the first time a
+ * newer snapshot is seen and refilled lazily; the access frequencies survive, so hot pairs are
+ * admitted again right away. Cached bytes are written to the response as is, without Jackson.
+ * <p>
+ * Each {@link WireFormat} of a response is rendered and cached on its own, under its own ETag,
+ * and the responses vary by the Accept header.
+ * <p>
+ * A cached response still counts as a request of its currencies, exactly like a computed one.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateResponseCache {
+
+    private final CurrencyExchangeRepository repository;
+    private final ObjectMapper mapper;
+    private final ObjectMapper cborMapper;
+    private final CurrencyExchangeMetrics metrics;
+    private final CacheControl cacheControl;
+
+    private final Cache<String, CachedResponse> responses;
+    private final AtomicReference<Validators> validators = new AtomicReference<>(new Validators(RateSnapshot.EMPTY));
+
+    public RateResponseCache(CurrencyExchangeRepository repository, ObjectMapper mapper, MappingJackson2CborHttpMessageConverter cborConverter,
+                             CurrencyExchangeMetrics metrics, ApplicationProperties properties) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.cborMapper = cborConverter.getObjectMapper();
+        this.metrics = metrics;
+        this.cacheControl = CacheControl.maxAge(properties.getResponseMaxAge()).cachePublic().mustRevalidate();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.getResponseCacheSize())
+                .recordStats()
+                .build();
+        metrics.monitorCache("currency.exchange.responses", responses);
+    }
+
+    /**
+     * Returns the cached response of the request or computes it with the loader. Currencies
+     * that can't be resolved are never cached, the loader's exception is thrown for them every
+     * time.
+     *
+     * @param key    identifies the response among all cached ones, e.g. the request path
+     * @param format encoding of the response
+     * @param from   source currency of the response
+     * @param to     target currency of the response
+     * @param loader computes the response, recording the request like any other lookup
+     * @return the response entity with the encoded bytes of the response
+     * @throws InvalidCurrencyException
+     * @throws CurrencyNotFoundException
+     */
+    public ResponseEntity<byte[]> get(String key, WireFormat format, String from, String to, ResponseLoader loader) throws InvalidCurrencyException, CurrencyNotFoundException {
+        Validators current = currentValidators();
+        String formatKey = format == WireFormat.JSON ? key : key + ";" + format;
+        CachedResponse cached = responses.getIfPresent(formatKey);
+        if (cached != null && cached.snapshot == current.snapshot) {
+            if (cached.fromIndex >= 0) {
+                current.snapshot.recordRequest(cached.fromIndex);
+            }
+            if (cached.toIndex >= 0) {
+                current.snapshot.recordRequest(cached.toIndex);
+            }
+            metrics.recordPairRequest(from, to);
+            return response(current, format, cached.body);
+        }
+
+        byte[] body = serialize(format, loader.load());
+        if (repository.getSnapshot() != current.snapshot) {
+            // the response may come from the newer snapshot, serve it without validators
+            return ResponseEntity.ok().contentType(format.getMediaType()).varyBy(HttpHeaders.ACCEPT).body(body);
+        }
+        responses.put(formatKey, new CachedResponse(current.snapshot, body, current.snapshot.indexOf(from), current.snapshot.indexOf(to)));
+        return response(current, format, body);
+    }
+
+    /**
+     * Response of a body that changes with every counted request, such as the supported
+     * currencies with their request counts. Its ETag is the snapshot plus the total number of
+     * requests, read before the body is computed so a body never reflects fewer requests than
+     * its ETag says.
+     *
+     * @param body
+     * @return the response entity, revalidated on every use
+     */
+    public <T> ResponseEntity<T> getCounted(Supplier<T> body) {
+        RateSnapshot snapshot = currentValidators().snapshot;
+        long requests = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            requests += snapshot.getNoOfRequests(i);
+        }
+        String etag = etag(snapshot, "-" + requests);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body.get());
+    }
+
+    private ResponseEntity<byte[]> response(Validators validators, WireFormat format, byte[] body) {
+        return ResponseEntity.ok()
+                .eTag(format == WireFormat.JSON ? validators.etag : etag(validators.snapshot, format.getEtagSuffix()))
+                .lastModified(validators.snapshot.getLoadedAt())
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(format.getMediaType())
+                .body(body);
+    }
+
+    private Validators currentValidators() {
+        RateSnapshot snapshot = repository.getSnapshot();
+        Validators current = validators.get();
+        while (current.snapshot != snapshot) {
+            Validators next = new Validators(snapshot);
+            if (validators.compareAndSet(current, next)) {
+                // responses of the previous snapshot are never served again, free them at once
+                responses.invalidateAll();
+                return next;
+            }
+            current = validators.get();
+        }
+        return current;
+    }
+
+    private byte[] serialize(WireFormat format, Object response) {
+        try {
+            return (format == WireFormat.CBOR ? cborMapper : mapper).writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + response, e);
+        }
+    }
+
+    private static String etag(RateSnapshot snapshot, String suffix) {
+        // the load time keeps ETags of a restarted instance, which counts versions from 1 again, apart
+        return "\"" + snapshot.getVersion() + "-" + Long.toHexString(snapshot.getLoadedAt().toEpochMilli()) + suffix + "\"";
+    }
+
+    @FunctionalInterface
+    public interface ResponseLoader {
+        Object load() throws InvalidCurrencyException, CurrencyNotFoundException;
+    }
+
+    private static final class Validators {
+        private final RateSnapshot snapshot;
+        private final String etag;
+
+        private Validators(RateSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.etag = etag(snapshot, "");
+        }
+    }
+
+    private static final class CachedResponse {
+        private final RateSnapshot snapshot;
+        private final byte[] body;
+        private final int fromIndex;
+        private final int toIndex;
+
+        private CachedResponse(RateSnapshot snapshot, byte[] body, int fromIndex, int toIndex) {
+            this.snapshot = snapshot;
+            this.body = body;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+    }
+}
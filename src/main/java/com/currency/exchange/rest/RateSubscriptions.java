@@ -0,0 +1,307 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.VirtualThreadConfig;
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.exception.ServiceOverloadedException;
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.RateSnapshotPublishedEvent;
+import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the rates of subscribed currency pairs as server-sent events whenever a new rate
+ * snapshot changes them. Subscribers are indexed by pair, so a snapshot costs one rate lookup
+ * and one JSON rendering per distinct subscribed pair, however many clients subscribed to it,
+ * and pairs whose rate didn't change cost no more than the lookup.
+ * <p>
+ * Every subscriber has a bounded buffer of updates, drained by its own task on a shared
+ * executor, so a slow consumer only ever blocks its own sends. When its buffer is full the
+ * oldest update is dropped: a newer rate of the same pair supersedes it anyway. The executor
+ * is a bounded pool of platform threads: a subscriber has at most one pending drain, so when
+ * every thread is busy the drains of the others wait in the pool's queue. With
+ * {@code exchange.virtual-threads} on Java 21 or later every drain gets a virtual thread instead,
+ * so blocked sends hold no platform thread.
+ * <p>
+ * A new subscriber is registered before its current rates are read, and a pair's rate is read
+ * and queued under the pair's lock by both the subscription and the snapshot listener, so a
+ * subscriber never misses a snapshot published while it subscribes nor gets an older rate last.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateSubscriptions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RateSubscriptions.class);
+
+    static final String EVENT_NAME = "rate";
+
+    private final CurrencyExchangeService service;
+    private final CurrencyExchangeRepository repository;
+    private final ObjectMapper mapper;
+    private final CurrencyExchangeMetrics metrics;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    private final ExecutorService executor;
+    private final Map<String, PairSubscribers> pairs = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public RateSubscriptions(CurrencyExchangeService service, CurrencyExchangeRepository repository, ObjectMapper mapper,
+                             CurrencyExchangeMetrics metrics, ApplicationProperties properties) {
+        this.service = service;
+        this.repository = repository;
+        this.mapper = mapper;
+        this.metrics = metrics;
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.bufferSize = Math.max(1, properties.getSubscriberBufferSize());
+        this.timeoutMillis = properties.getSubscriptionTimeout().toMillis();
+        this.executor = (properties.isVirtualThreads() ? VirtualThreadConfig.findVirtualThreadPerTaskExecutor() : Optional.<ExecutorService>empty())
+                .orElseGet(() -> newSenderPool(Math.max(1, properties.getSubscriptionThreads()), Math.max(1, maxSubscribers)));
+        metrics.registerSubscriptions(subscribers::get, pairs::size);
+    }
+
+    /**
+     * Subscribes to the given pairs, sending their current rates right away.
+     *
+     * @param currencyPairs pairs like USD-HUF
+     * @return the emitter of the subscription
+     * @throws InvalidCurrencyException  if a pair is malformed
+     * @throws CurrencyNotFoundException if a currency isn't quoted
+     * @throws ServiceOverloadedException if there are too many subscribers already
+     */
+    public SseEmitter subscribe(List<String> currencyPairs) throws InvalidCurrencyException, CurrencyNotFoundException, ServiceOverloadedException {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String pair : currencyPairs) {
+            if (pair.split("-", -1).length != 2) {
+                throw new InvalidCurrencyException("The given pair " + pair + " is not of the form FROM-TO");
+            }
+            keys.add(pair);
+        }
+        if (keys.isEmpty()) {
+            throw new InvalidCurrencyException("The given pairs can't be null or empty");
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ServiceOverloadedException("Too many rate subscriptions, try again later");
+        }
+
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), keys, bufferSize);
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(error -> unsubscribe(subscriber));
+        List<PairSubscribers> subscribed = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            subscribed.add(pairs.compute(key, (ignored, existing) -> {
+                PairSubscribers pair = existing == null ? new PairSubscribers(key) : existing;
+                pair.subscribers.add(subscriber);
+                return pair;
+            }));
+        }
+        try {
+            long now = System.nanoTime();
+            for (PairSubscribers pair : subscribed) {
+                synchronized (pair) {
+                    CurrencyExchange exchange = getExchangeRate(repository.getSnapshot(), pair);
+                    if (pair.rate == null) {
+                        pair.rate = exchange.getExchangeRate();
+                    }
+                    subscriber.offer(new Update(render(exchange), now), metrics);
+                }
+            }
+        } catch (InvalidCurrencyException | CurrencyNotFoundException e) {
+            unsubscribe(subscriber);
+            throw e;
+        }
+        drain(subscriber);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Pushes the subscribed pairs the new snapshot changed.
+     */
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        long start = System.nanoTime();
+        Set<Subscriber> notified = new LinkedHashSet<>();
+        for (PairSubscribers pair : pairs.values()) {
+            synchronized (pair) {
+                CurrencyExchange exchange;
+                try {
+                    exchange = getExchangeRate(event.getSnapshot(), pair);
+                } catch (InvalidCurrencyException | CurrencyNotFoundException e) {
+                    // the currency is no longer quoted, keep the subscription for when it is again
+                    continue;
+                }
+                if (exchange.getExchangeRate().equals(pair.rate)) {
+                    continue;
+                }
+                pair.rate = exchange.getExchangeRate();
+                Update update = new Update(render(exchange), start);
+                for (Subscriber subscriber : pair.subscribers) {
+                    subscriber.offer(update, metrics);
+                    notified.add(subscriber);
+                }
+            }
+        }
+        notified.forEach(this::drain);
+        LOGGER.debug("Queued the changes of rate snapshot {} for {} subscribers in {} µs", event.getSnapshot().getVersion(),
+                notified.size(), (System.nanoTime() - start) / 1_000);
+    }
+
+    private static ExecutorService newSenderPool(int threads, int maxSubscribers) {
+        AtomicInteger created = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxSubscribers), runnable -> {
+                    Thread thread = new Thread(runnable, "rate-subscriptions-" + created.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return number of open subscriptions
+     */
+    int getSubscribers() {
+        return subscribers.get();
+    }
+
+    private void drain(Subscriber subscriber) {
+        if (subscriber.closed.get() || !subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> send(subscriber));
+        } catch (RejectedExecutionException e) {
+            // shutting down, the updates stay buffered
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            Update update;
+            while ((update = subscriber.updates.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event().name(EVENT_NAME).data(update.json));
+                metrics.recordFanOut(System.nanoTime() - update.queuedAt);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away, or the emitter completed meanwhile
+            subscriber.emitter.completeWithError(e);
+            unsubscribe(subscriber);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if (!subscriber.updates.isEmpty()) {
+            drain(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.decrementAndGet();
+        for (String key : subscriber.pairs) {
+            pairs.computeIfPresent(key, (ignored, pair) -> {
+                pair.subscribers.remove(subscriber);
+                return pair.subscribers.isEmpty() ? null : pair;
+            });
+        }
+    }
+
+    private CurrencyExchange getExchangeRate(RateSnapshot snapshot, PairSubscribers pair) throws InvalidCurrencyException, CurrencyNotFoundException {
+        return service.getSubscribedExchangeRate(snapshot, pair.from, pair.to);
+    }
+
+    private String render(CurrencyExchange exchange) {
+        try {
+            return mapper.writeValueAsString(exchange);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + exchange, e);
+        }
+    }
+
+    private static final class PairSubscribers {
+        private final String from;
+        private final String to;
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        /** Rate last pushed, null until the first subscriber got its current rate. Guarded by the pair. */
+        private BigDecimal rate;
+
+        private PairSubscribers(String key) {
+            String[] currencies = key.split("-", -1);
+            this.from = currencies[0];
+            this.to = currencies[1];
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> pairs;
+        private final ArrayBlockingQueue<Update> updates;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<String> pairs, int bufferSize) {
+            this.emitter = emitter;
+            this.pairs = pairs;
+            this.updates = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void offer(Update update, CurrencyExchangeMetrics metrics) {
+            while (!updates.offer(update)) {
+                if (updates.poll() != null) {
+                    metrics.recordDroppedUpdate();
+                }
+            }
+        }
+    }
+
+    private static final class Update {
+        private final String json;
+        private final long queuedAt;
+
+        private Update(String json, long queuedAt) {
+            this.json = json;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
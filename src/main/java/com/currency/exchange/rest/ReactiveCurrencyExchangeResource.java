@@ -0,0 +1,107 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.service.ReactiveCurrencyExchangeService;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.CurrencySupport;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioValuation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The routes of {@link CurrencyExchangeResource} on WebFlux, active when the application runs as
+ * a reactive web application (the {@code reactive} profile). See {@link CurrencyExchangeResource}
+ * for the API documentation, Swagger only scans the servlet stack.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCurrencyExchangeResource {
+
+    private ReactiveCurrencyExchangeService service;
+
+    public ReactiveCurrencyExchangeResource(ReactiveCurrencyExchangeService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/currency/exchange/rate/from/{from}/to/EUR")
+    public Mono<CurrencyExchange> getExchangeRateToEuro(@PathVariable String from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.getExchangeRateToEuro(from, date);
+    }
+
+    @GetMapping("/currency/exchange/rate/from/{from}/to/{to}")
+    public Mono<CurrencyExchange> getExchangeRateForCurrencyPairs(@PathVariable String from, @PathVariable String to,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.getExchangeRateFromCurrencyPairs(from, to, date);
+    }
+
+    @GetMapping("/currency/exchange/supported/currencies")
+    public Flux<CurrencySupport> getSupportedCurrencies() {
+        return service.getSupportedCurrenciesAndNoOfTimesRequested();
+    }
+
+    @GetMapping("/exchange/conversion/from/{from}/to/{to}/quantity/{quantity}")
+    public Mono<CurrencyConversion> getCurrencyConversion(@PathVariable String from, @PathVariable String to, @PathVariable BigDecimal quantity,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.getCurrencyConversion(from, to, quantity, date);
+    }
+
+    @PostMapping("/exchange/conversion/batch")
+    public Flux<CurrencyConversionResult> getCurrencyConversions(@RequestBody Flux<CurrencyConversionRequest> requests) {
+        return service.getCurrencyConversions(requests);
+    }
+
+    @PostMapping("/exchange/conversion/from/{from}/to/{to}/quantities")
+    public Mono<CurrencyConversionColumns> getCurrencyConversions(@PathVariable String from, @PathVariable String to, @RequestBody Flux<BigDecimal> quantities) {
+        return service.getCurrencyConversions(from, to, quantities);
+    }
+
+    @PostMapping("/exchange/portfolio/valuation/to/{to}")
+    public Mono<PortfolioValuation> getPortfolioValuation(@PathVariable String to, @RequestBody Flux<PortfolioPosition> positions) {
+        return service.getPortfolioValuation(to, positions);
+    }
+
+    @PostMapping(value = "/exchange/conversion/stream", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<Flux<String>> getCurrencyConversions(ServerHttpRequest request, @RequestBody Flux<String> lines) {
+        MediaType contentType = request.getHeaders().getContentType();
+        ConversionStreamFormat format = MediaType.parseMediaType(ConversionStreamFormat.CSV.getMediaType()).includes(contentType)
+                ? ConversionStreamFormat.CSV : ConversionStreamFormat.NDJSON;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(service.getCurrencyConversions(lines, format));
+    }
+
+    @GetMapping("/exchange/history/from/{from}/to/{to}")
+    public Mono<CurrencyRateSeries> getExchangeRateSeries(@PathVariable String from, @PathVariable String to,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+                                                          @RequestParam(required = false) String interval) {
+        return service.getExchangeRateSeries(from, to, start, end, interval);
+    }
+
+    @GetMapping("/exchange/linkTo/{currencyPair}")
+    public Mono<Map<String, String>> getCurrencyPairLink(@PathVariable String currencyPair) {
+        return service.getCurrencyPairLink(currencyPair);
+    }
+}
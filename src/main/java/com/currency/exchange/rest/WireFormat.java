@@ -0,0 +1,64 @@
+package com.currency.exchange.rest;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Encodings of the response bodies rendered ahead of time by {@link RateResponseCache}.
+ */
+public enum WireFormat {
+
+    JSON(MediaType.APPLICATION_JSON, ""),
+    CBOR(MediaType.APPLICATION_CBOR, "-cbor");
+
+    private final MediaType mediaType;
+    private final String etagSuffix;
+
+    WireFormat(MediaType mediaType, String etagSuffix) {
+        this.mediaType = mediaType;
+        this.etagSuffix = etagSuffix;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return suffix keeping the ETags of the representations of one response apart
+     */
+    public String getEtagSuffix() {
+        return etagSuffix;
+    }
+
+    /**
+     * Picks the format of the Accept header the way Spring's content negotiation does: the most
+     * specific, highest quality media type that one of the formats produces wins, JSON when
+     * nothing is asked for or the header can't be parsed.
+     *
+     * @param accept
+     * @return {@link WireFormat}
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.isCompatibleWith(JSON.mediaType)) {
+                return JSON;
+            }
+            if (mediaType.isCompatibleWith(CBOR.mediaType)) {
+                return CBOR;
+            }
+        }
+        return JSON;
+    }
+}
@@ -1,12 +1,24 @@
 package com.currency.exchange.service;
 
 import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
 import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
 import com.currency.exchange.service.bo.CurrencySupport;
 import com.currency.exchange.exception.CurrencyNotFoundException;
 import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioValuation;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +36,19 @@ public interface CurrencyExchangeService {
    */
   CurrencyExchange getExchangeRateToEuro(String from) throws InvalidCurrencyException, CurrencyNotFoundException;
 
+  /**
+   * Calculates the exchange rate in EUR(euro) for a given currency valid on the given business date.
+   * Without a date the current rate is used, see {@link #getExchangeRateToEuro(String)}.
+   * If no rate was published on or before the date then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param from
+   * @param date
+   * @return
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyExchange getExchangeRateToEuro(String from, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException;
+
   /**
    * Calculates the exchange rate of one currency to another for given pair.
    * If necessary details are missing from the consumer then {@link InvalidCurrencyException} is thrown.
@@ -38,6 +63,34 @@ public interface CurrencyExchangeService {
    */
   CurrencyExchange getExchangeRateFromCurrencyPairs(String from, String to) throws InvalidCurrencyException, CurrencyNotFoundException;
 
+  /**
+   * Calculates the exchange rate of one currency to another valid on the given business date.
+   * Without a date the current rate is used, see {@link #getExchangeRateFromCurrencyPairs(String, String)}.
+   * If no rate was published on or before the date then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param from
+   * @param to
+   * @param date
+   * @return {@link CurrencyExchange}
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyExchange getExchangeRateFromCurrencyPairs(String from, String to, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException;
+
+  /**
+   * Exchange rate of the pair in the given snapshot for pushing it to subscribers. Unlike
+   * {@link #getExchangeRateFromCurrencyPairs(String, String)} it doesn't count as a request of
+   * either currency, pushes aren't requested by anyone.
+   *
+   * @param snapshot the snapshot to resolve the pair against, e.g. the one just published
+   * @param from
+   * @param to
+   * @return {@link CurrencyExchange}
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyExchange getSubscribedExchangeRate(RateSnapshot snapshot, String from, String to) throws InvalidCurrencyException, CurrencyNotFoundException;
+
   /**
    *
    * Get all the supported currencies and no times it's requested.
@@ -60,6 +113,91 @@ public interface CurrencyExchangeService {
    */
   CurrencyConversion getCurrencyConversion(String from, String to, BigDecimal quantity) throws InvalidCurrencyException, CurrencyNotFoundException;
 
+  /**
+   * Converts from one currency to another at the rate valid on the given business date.
+   * Without a date the current rate is used, see {@link #getCurrencyConversion(String, String, BigDecimal)}.
+   * If no rate was published on or before the date then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param from
+   * @param to
+   * @param quantity
+   * @param date
+   * @return
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyConversion getCurrencyConversion(String from, String to, BigDecimal quantity, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException;
+
+  /**
+   * Converts every request of the batch against the same rate snapshot.
+   * Null items, invalid or unknown currencies and missing quantities are reported on the failing item only,
+   * the result list has one entry per request in the same order.
+   *
+   * @param requests
+   * @return
+   */
+  List<CurrencyConversionResult> getCurrencyConversions(List<CurrencyConversionRequest> requests);
+
+  /**
+   * Converts many quantities of one currency pair against the same rate snapshot.
+   * If necessary details are missing from the consumer then {@link InvalidCurrencyException} is thrown.
+   * If the details are incorrect from the consumer then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param from
+   * @param to
+   * @param quantities
+   * @return
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyConversionColumns getCurrencyConversions(String from, String to, List<BigDecimal> quantities) throws InvalidCurrencyException, CurrencyNotFoundException;
+
+  /**
+   * Converts a stream of conversion requests, one per line, writing one result line per request
+   * as soon as it is computed. Memory use doesn't depend on the number of lines.
+   * All lines are converted against the same rate snapshot and failing lines carry their error inline.
+   *
+   * @param in
+   * @param out
+   * @param format
+   * @return number of lines converted
+   * @throws IOException
+   */
+  long getCurrencyConversions(InputStream in, OutputStream out, ConversionStreamFormat format) throws IOException;
+
+  /**
+   * Values a portfolio in the target currency against one rate snapshot, with a subtotal per
+   * currency held. The positions are summed per currency in parallel, then every subtotal is
+   * converted once, rounded to the minor units of the target currency.
+   * If necessary details are missing from the consumer then {@link InvalidCurrencyException} is thrown.
+   * If the details are incorrect from the consumer then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param to
+   * @param positions
+   * @return {@link PortfolioValuation}
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  PortfolioValuation getPortfolioValuation(String to, List<PortfolioPosition> positions) throws InvalidCurrencyException, CurrencyNotFoundException;
+
+  /**
+   * Retrieves the daily exchange rates of a currency pair between two dates (both inclusive),
+   * downsampled to the given interval, with min, max, mean and volatility over the whole range.
+   * Without start or end the range is open on that side.
+   * If necessary details are missing or the range is invalid then {@link InvalidCurrencyException} is thrown.
+   * If there is no rate history for a currency then {@link CurrencyNotFoundException} is thrown.
+   *
+   * @param from
+   * @param to
+   * @param start
+   * @param end
+   * @param interval daily, weekly or monthly, daily when null
+   * @return {@link CurrencyRateSeries}
+   * @throws InvalidCurrencyException
+   * @throws CurrencyNotFoundException
+   */
+  CurrencyRateSeries getExchangeRateSeries(String from, String to, LocalDate start, LocalDate end, String interval) throws InvalidCurrencyException, CurrencyNotFoundException;
+
   /**
    *
    * Retrieves the link to the interactive chart.
@@ -0,0 +1,88 @@
+package com.currency.exchange.service;
+
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.CurrencySupport;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioValuation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link CurrencyExchangeService} for the reactive API. Lookups that may
+ * wait for a build already in flight run on a worker, so the returned publishers never park the
+ * subscribing thread. Errors are signalled with the same {@link InvalidCurrencyException} and
+ * {@link CurrencyNotFoundException} as the blocking service.
+ */
+public interface ReactiveCurrencyExchangeService {
+
+  /**
+   * @see CurrencyExchangeService#getExchangeRateToEuro(String, LocalDate)
+   */
+  Mono<CurrencyExchange> getExchangeRateToEuro(String from, LocalDate date);
+
+  /**
+   * @see CurrencyExchangeService#getExchangeRateFromCurrencyPairs(String, String, LocalDate)
+   */
+  Mono<CurrencyExchange> getExchangeRateFromCurrencyPairs(String from, String to, LocalDate date);
+
+  /**
+   * @see CurrencyExchangeService#getSupportedCurrenciesAndNoOfTimesRequested()
+   */
+  Flux<CurrencySupport> getSupportedCurrenciesAndNoOfTimesRequested();
+
+  /**
+   * @see CurrencyExchangeService#getCurrencyConversion(String, String, BigDecimal, LocalDate)
+   */
+  Mono<CurrencyConversion> getCurrencyConversion(String from, String to, BigDecimal quantity, LocalDate date);
+
+  /**
+   * Calculates the conversions as they arrive. Conversions are resolved in batches, each batch
+   * against one rate snapshot, and failing items carry status and error inline.
+   *
+   * @see CurrencyExchangeService#getCurrencyConversions(java.util.List)
+   */
+  Flux<CurrencyConversionResult> getCurrencyConversions(Flux<CurrencyConversionRequest> requests);
+
+  /**
+   * @see CurrencyExchangeService#getCurrencyConversions(String, String, java.util.List)
+   */
+  Mono<CurrencyConversionColumns> getCurrencyConversions(String from, String to, Flux<BigDecimal> quantities);
+
+  /**
+   * Collects the positions and sums them on the common fork-join pool, so the event loop is never
+   * parked waiting for the workers.
+   *
+   * @see CurrencyExchangeService#getPortfolioValuation(String, java.util.List)
+   */
+  Mono<PortfolioValuation> getPortfolioValuation(String to, Flux<PortfolioPosition> positions);
+
+  /**
+   * Converts NDJSON or CSV request lines into result lines of the same format, line breaks
+   * included. Malformed lines produce an error line instead of failing the stream.
+   *
+   * @see CurrencyExchangeService#getCurrencyConversions(java.io.InputStream, java.io.OutputStream, ConversionStreamFormat)
+   */
+  Flux<String> getCurrencyConversions(Flux<String> lines, ConversionStreamFormat format);
+
+  /**
+   * @see CurrencyExchangeService#getExchangeRateSeries(String, String, LocalDate, LocalDate, String)
+   */
+  Mono<CurrencyRateSeries> getExchangeRateSeries(String from, String to, LocalDate start, LocalDate end, String interval);
+
+  /**
+   * @see CurrencyExchangeService#getCurrencyPairLink(String)
+   */
+  Mono<Map<String, String>> getCurrencyPairLink(String currencyPair);
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
 
 @Component
@@ -12,4 +15,118 @@ import java.util.Map;
 public class ApplicationProperties {
     private String url;
     private Map<String, String> currencyLinks;
+    /**
+     * Optional path of an external rate file (same layout as json/currencyexchange.json).
+     * When set, its rates are served as of the file's modification time and it is re-read
+     * whenever it changes on disk.
+     */
+    private String rateFile;
+    /**
+     * Optional path of a daily rate history in the ECB eurofxref-hist.csv layout.
+     * Defaults to the history shipped on the classpath.
+     */
+    private String historyFile;
+    /**
+     * Optional path of a binary rate store written by RateStoreConverter. When set, the rate
+     * history is memory-mapped from it instead of parsing {@link #historyFile}, and its snapshot
+     * is one of the rate providers.
+     */
+    private String rateStore;
+    /**
+     * Optional base URL of the ECB euro foreign exchange reference rate feed, e.g.
+     * https://www.ecb.europa.eu/stats/eurofxref. When set, eurofxref-daily.xml is fetched from it
+     * in the background and its rates are served as of their publication.
+     */
+    private String feedUrl;
+    /**
+     * Delay between two refreshes of the rates from every rate provider (feed, file, classpath).
+     * For each currency the freshest rate any provider has is served.
+     */
+    private Duration refreshInterval = Duration.ofHours(1);
+    /**
+     * How long a refresh waits for a provider before using the last rates it returned.
+     */
+    private Duration providerTimeout = Duration.ofSeconds(5);
+    /**
+     * Per provider overrides of {@link #providerTimeout}, by provider name (ecb, file, classpath).
+     */
+    private Map<String, Duration> providerTimeouts = new HashMap<>();
+    /**
+     * Connect and read timeout of a rate feed fetch.
+     */
+    private Duration feedTimeout = Duration.ofSeconds(10);
+    /**
+     * Rounding mode of every step of a conversion: the rate to EUR, the pair rate and the amount.
+     */
+    private RoundingMode roundingMode = RoundingMode.HALF_UP;
+    /**
+     * Minor units converted amounts are rounded to, by currency code. Currencies not listed use
+     * their ISO 4217 default fraction digits.
+     */
+    private Map<String, Integer> minorUnits;
+    /**
+     * Most conversions accepted in one batch request, the whole batch is held in memory. Larger
+     * batches are rejected with a 400, the conversion stream takes any number of rows.
+     */
+    private int maxBatchSize = 10_000;
+    /**
+     * Runs every servlet request on its own virtual thread instead of Tomcat's worker pool, so
+     * requests blocked on slow rate sources don't hold a pool thread. Needs Java 21 or later at
+     * runtime, on older JVMs the worker pool stays in use.
+     */
+    private boolean virtualThreads;
+    /**
+     * How long clients and shared caches may reuse a current-rate response before revalidating
+     * it. Revalidation is cheap, an unchanged snapshot is answered with a 304.
+     */
+    private Duration responseMaxAge = Duration.ZERO;
+    /**
+     * Maximum number of rendered current-rate and conversion responses kept between two rate
+     * snapshots. The most frequently requested ones are kept.
+     */
+    private long responseCacheSize = 4096;
+    /**
+     * Requests per second each client may send to the REST endpoints on average, 0 for no limit.
+     * Requests above it are rejected with a 429.
+     */
+    private double clientRateLimit;
+    /**
+     * Requests a client that has been idle may send at once, on top of {@link #clientRateLimit}.
+     */
+    private int clientBurst = 50;
+    /**
+     * Header naming the client of a request, set by the gateway in front of the service. Requests
+     * without it are limited by their remote address.
+     */
+    private String clientHeader = "X-Client-Id";
+    /**
+     * Most REST requests served at once, 0 for no limit. Requests above the limit are shed with a
+     * 503 rather than queued.
+     */
+    private int maxConcurrentRequests;
+    /**
+     * Latency above which {@link #maxConcurrentRequests} is adaptively lowered until requests are
+     * fast again. Zero keeps the limit fixed.
+     */
+    private Duration sheddingLatency = Duration.ZERO;
+    /**
+     * Most clients subscribed to rate updates at once. Subscriptions above it are rejected with a
+     * 503, they don't count against {@link #maxConcurrentRequests}.
+     */
+    private int maxSubscribers = 10_000;
+    /**
+     * Rate updates kept for a subscriber that reads them slower than they are published. The
+     * oldest update is dropped when a new one doesn't fit.
+     */
+    private int subscriberBufferSize = 64;
+    /**
+     * How long a rate update subscription stays open, clients reconnect after it.
+     */
+    private Duration subscriptionTimeout = Duration.ofMinutes(30);
+    /**
+     * Platform threads sending rate updates to subscribers. Subscribers with pending updates
+     * queue for a thread when all are busy. Unused with {@link #virtualThreads} on Java 21 or
+     * later, where every send gets its own virtual thread.
+     */
+    private int subscriptionThreads = 16;
 }
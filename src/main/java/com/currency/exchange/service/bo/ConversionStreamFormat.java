@@ -0,0 +1,21 @@
+package com.currency.exchange.service.bo;
+
+/**
+ * Line formats accepted and produced by the streaming conversion endpoint.
+ */
+public enum ConversionStreamFormat {
+    /** One JSON object per line, e.g. {"from":"USD","to":"HUF","quantity":15} */
+    NDJSON("application/x-ndjson"),
+    /** from,to,quantity per line, an optional header line is skipped */
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ConversionStreamFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+}
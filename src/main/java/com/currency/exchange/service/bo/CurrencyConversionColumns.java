@@ -0,0 +1,25 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Columnar conversion of many quantities for one currency pair. {@code calculateAmounts[i]}
+ * belongs to {@code quantities[i]} and is null when that quantity was missing.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CurrencyConversionColumns {
+    private String from;
+    private String to;
+    private BigDecimal exchangeRate;
+    private List<BigDecimal> quantities;
+    private List<BigDecimal> calculateAmounts;
+}
@@ -0,0 +1,16 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CurrencyConversionRequest {
+    private String from;
+    private String to;
+    private BigDecimal quantity;
+}
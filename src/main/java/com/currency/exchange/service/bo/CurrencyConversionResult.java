@@ -0,0 +1,28 @@
+package com.currency.exchange.service.bo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One entry of a batch conversion. Either the conversion fields or {@code status} and
+ * {@code error} are set, so a bad item doesn't fail the rest of the batch.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CurrencyConversionResult {
+    private String from;
+    private String to;
+    private BigDecimal quantity;
+    private BigDecimal exchangeRate;
+    private BigDecimal calculateAmount;
+    private Integer status;
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CurrencyRateSeries {
+    private String from;
+    private String to;
+    private LocalDate start;
+    private LocalDate end;
+    private RateInterval interval;
+    private List<RatePoint> points;
+    private RateAggregates aggregates;
+}
@@ -0,0 +1,15 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PortfolioPosition {
+    private String currency;
+    private BigDecimal amount;
+}
@@ -0,0 +1,24 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * The positions of a portfolio held in one currency: their summed {@code amount}, and its
+ * {@code value} in the target currency of the valuation at {@code exchangeRate}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PortfolioSubtotal {
+    private String currency;
+    private Long positions;
+    private BigDecimal amount;
+    private BigDecimal exchangeRate;
+    private BigDecimal value;
+}
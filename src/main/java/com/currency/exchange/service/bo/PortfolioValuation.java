@@ -0,0 +1,24 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Value of a portfolio in the {@code to} currency, the sum of the values of its
+ * {@code subtotals}, one per currency held.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PortfolioValuation {
+    private String to;
+    private Long positions;
+    private BigDecimal total;
+    private List<PortfolioSubtotal> subtotals;
+}
@@ -0,0 +1,24 @@
+package com.currency.exchange.service.bo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates over every daily rate of a range, regardless of the downsampling interval.
+ * {@code volatility} is the sample standard deviation of the daily log returns.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RateAggregates {
+    private int count;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal mean;
+    private BigDecimal volatility;
+}
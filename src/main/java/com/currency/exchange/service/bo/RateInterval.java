@@ -0,0 +1,10 @@
+package com.currency.exchange.service.bo;
+
+/**
+ * Downsampling interval of a rate series, each bucket is represented by its last rate.
+ */
+public enum RateInterval {
+    DAILY,
+    WEEKLY,
+    MONTHLY
+}
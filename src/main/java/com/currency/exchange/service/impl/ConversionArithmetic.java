@@ -0,0 +1,132 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.service.bo.ApplicationProperties;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fixed-point rules of the service's conversions. EUR rates are held as longs scaled by
+ * {@link #RATE_SCALE}. Converted amounts are {@code quantity * toRate / fromRate} rounded once,
+ * to the minor units of the target currency, so no intermediate rate is ever rounded. The
+ * published rates are rounded from the same exact quotients: the rate to EUR to
+ * {@link #EURO_SCALE} places and pair rates to {@link #PAIR_SCALE} places, for display only.
+ * Every step gives exactly the result of the equivalent {@link BigDecimal} operation with the
+ * configured rounding mode, while only touching longs as long as they fit.
+ */
+public final class ConversionArithmetic {
+
+    public static final int RATE_SCALE = RateSeries.RATE_SCALE;
+    public static final int EURO_SCALE = 3;
+    public static final int PAIR_SCALE = 2;
+
+    /** Minor units of codes {@link Currency} does not know, e.g. test or precious metal codes. */
+    static final int DEFAULT_MINOR_UNITS = 2;
+
+    static final ConversionArithmetic DEFAULT = new ConversionArithmetic(RoundingMode.HALF_UP, Collections.emptyMap());
+
+    private static final long EURO_DIVIDEND = FixedPoint.powerOfTen(EURO_SCALE + RATE_SCALE);
+
+    private static final long PAIR_DIVIDEND = FixedPoint.powerOfTen(PAIR_SCALE);
+
+    private static final long RATE_DIVIDEND = FixedPoint.powerOfTen(RATE_SCALE);
+
+    private final RoundingMode roundingMode;
+    private final Map<String, Integer> minorUnits;
+
+    ConversionArithmetic(RoundingMode roundingMode, Map<String, Integer> minorUnits) {
+        if (roundingMode == RoundingMode.UNNECESSARY) {
+            throw new IllegalArgumentException("Conversions need a rounding mode that can round");
+        }
+        this.roundingMode = roundingMode;
+        this.minorUnits = new HashMap<>(minorUnits);
+    }
+
+    public static ConversionArithmetic of(ApplicationProperties properties) {
+        return new ConversionArithmetic(
+                properties.getRoundingMode() == null ? RoundingMode.HALF_UP : properties.getRoundingMode(),
+                properties.getMinorUnits() == null ? Collections.emptyMap() : properties.getMinorUnits());
+    }
+
+    public RoundingMode getRoundingMode() {
+        return roundingMode;
+    }
+
+    /**
+     * @return the configured minor units of the currency, else its ISO 4217 default fraction digits
+     */
+    public int minorUnits(String currency) {
+        Integer configured = minorUnits.get(currency);
+        if (configured != null) {
+            return configured;
+        }
+        try {
+            int fractionDigits = Currency.getInstance(currency).getDefaultFractionDigits();
+            return fractionDigits < 0 ? DEFAULT_MINOR_UNITS : fractionDigits;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return DEFAULT_MINOR_UNITS;
+        }
+    }
+
+    /**
+     * @return the EUR rate as a long scaled by {@link #RATE_SCALE}
+     */
+    public long toRate(BigDecimal exchangeRate) {
+        return FixedPoint.toScaledLong(exchangeRate, RATE_SCALE, roundingMode);
+    }
+
+    /**
+     * @param rate EUR rate scaled by {@link #RATE_SCALE}
+     * @return 1 / rate scaled by {@link #EURO_SCALE}
+     */
+    public long rateToEuro(long rate) {
+        return FixedPoint.divide(EURO_DIVIDEND, rate, roundingMode);
+    }
+
+    /**
+     * @param fromRate EUR rate of the source currency scaled by {@link #RATE_SCALE}
+     * @param toRate EUR rate of the target currency scaled by {@link #RATE_SCALE}
+     * @return toRate / fromRate scaled by {@link #PAIR_SCALE}, the published pair rate
+     */
+    public long exchangeRate(long fromRate, long toRate) {
+        return FixedPoint.divide(Math.multiplyExact(toRate, PAIR_DIVIDEND), fromRate, roundingMode);
+    }
+
+    /**
+     * @param fromRate EUR rate of the source currency scaled by {@link #RATE_SCALE}
+     * @param toRate EUR rate of the target currency scaled by {@link #RATE_SCALE}
+     * @return toRate / fromRate scaled by {@link #RATE_SCALE}, precise enough to aggregate
+     */
+    public long preciseExchangeRate(long fromRate, long toRate) {
+        return FixedPoint.divide(Math.multiplyExact(toRate, RATE_DIVIDEND), fromRate, roundingMode);
+    }
+
+    /**
+     * Converts a quantity at the exact ratio of the two EUR rates. Quantities that do not fit the
+     * fixed-point range are converted with {@link BigDecimal}, with the same result.
+     *
+     * @param fromRate EUR rate of the source currency scaled by {@link #RATE_SCALE}
+     * @param toRate EUR rate of the target currency scaled by {@link #RATE_SCALE}
+     * @return quantity * toRate / fromRate rounded to the given minor units
+     */
+    public BigDecimal amount(long fromRate, long toRate, BigDecimal quantity, int minorUnits) {
+        try {
+            long unscaledQuantity = quantity.unscaledValue().longValueExact();
+            long dividend = Math.multiplyExact(unscaledQuantity, toRate);
+            long divisor = fromRate;
+            if (minorUnits >= quantity.scale()) {
+                dividend = Math.multiplyExact(dividend, FixedPoint.powerOfTen(minorUnits - quantity.scale()));
+            } else {
+                divisor = Math.multiplyExact(divisor, FixedPoint.powerOfTen(quantity.scale() - minorUnits));
+            }
+            return BigDecimal.valueOf(FixedPoint.divide(dividend, divisor, roundingMode), minorUnits);
+        } catch (ArithmeticException e) {
+            return quantity.multiply(BigDecimal.valueOf(toRate)).divide(BigDecimal.valueOf(fromRate), minorUnits, roundingMode);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.service.bo.ConversionStreamFormat;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Reads conversion requests from and writes conversion results to the NDJSON and CSV lines of
+ * the streaming conversion endpoint, shared by the servlet and the reactive API.
+ */
+final class ConversionLineCodec {
+
+    static final String CSV_HEADER = "from,to,quantity,exchangeRate,calculateAmount,error\n";
+
+    private final JsonFactory jsonFactory;
+
+    ConversionLineCodec(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    static CurrencyConversionResult malformed(long lineNumber) {
+        return CurrencyConversionResult.builder().status(HttpStatus.BAD_REQUEST.value()).error("Malformed line " + lineNumber).build();
+    }
+
+    /**
+     * @return whether the line is the optional header line of a CSV stream
+     */
+    boolean isHeader(String line, ConversionStreamFormat format) {
+        return format == ConversionStreamFormat.CSV && line.startsWith("from");
+    }
+
+    /**
+     * @throws MalformedLineException if the line isn't a conversion request of the format
+     * @throws IOException            if the line isn't JSON at all
+     */
+    CurrencyConversionRequest parse(String line, ConversionStreamFormat format) throws IOException {
+        return format == ConversionStreamFormat.CSV ? parseCsvLine(line) : parseJsonLine(line);
+    }
+
+    /**
+     * @return the result as one line of the given format, including the line break
+     */
+    String format(CurrencyConversionResult result, ConversionStreamFormat format) throws IOException {
+        StringWriter writer = new StringWriter(64);
+        if (format == ConversionStreamFormat.CSV) {
+            writeCsvLine(writer, result);
+        } else {
+            try (JsonGenerator generator = jsonFactory.createGenerator(writer)) {
+                writeJsonLine(generator, result);
+            }
+        }
+        return writer.toString();
+    }
+
+    CurrencyConversionRequest parseJsonLine(String line) throws IOException {
+        CurrencyConversionRequest request = new CurrencyConversionRequest();
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedLineException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                boolean requestField = "from".equals(field) || "to".equals(field) || "quantity".equals(field);
+                if (!requestField || value == JsonToken.VALUE_NULL) {
+                    parser.skipChildren();
+                } else if (value.isStructStart()) {
+                    parser.skipChildren();
+                    throw new MalformedLineException("Expected a value for " + field);
+                } else if ("from".equals(field)) {
+                    request.setFrom(parser.getValueAsString());
+                } else if ("to".equals(field)) {
+                    request.setTo(parser.getValueAsString());
+                } else {
+                    request.setQuantity(value.isNumeric() ? parser.getDecimalValue() : parseQuantity(parser.getText()));
+                }
+            }
+        }
+        return request;
+    }
+
+    CurrencyConversionRequest parseCsvLine(String line) throws MalformedLineException {
+        String[] columns = line.split(",", -1);
+        if (columns.length != 3) {
+            throw new MalformedLineException("Expected from,to,quantity");
+        }
+        String quantity = columns[2].trim();
+        return new CurrencyConversionRequest(columns[0].trim(), columns[1].trim(), quantity.isEmpty() ? null : parseQuantity(quantity));
+    }
+
+    private static BigDecimal parseQuantity(String quantity) throws MalformedLineException {
+        try {
+            return new BigDecimal(quantity);
+        } catch (NumberFormatException e) {
+            throw new MalformedLineException("Expected a decimal quantity");
+        }
+    }
+
+    void writeJsonLine(JsonGenerator generator, CurrencyConversionResult result) throws IOException {
+        generator.writeStartObject();
+        writeField(generator, "from", result.getFrom());
+        writeField(generator, "to", result.getTo());
+        if (result.getQuantity() != null) {
+            generator.writeNumberField("quantity", result.getQuantity());
+        }
+        if (result.getError() == null) {
+            generator.writeNumberField("exchangeRate", result.getExchangeRate());
+            generator.writeNumberField("calculateAmount", result.getCalculateAmount());
+        } else {
+            generator.writeNumberField("status", result.getStatus());
+            generator.writeStringField("error", result.getError());
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private static void writeField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    void writeCsvLine(Writer writer, CurrencyConversionResult result) throws IOException {
+        writer.write(nullToEmpty(result.getFrom()));
+        writer.write(',');
+        writer.write(nullToEmpty(result.getTo()));
+        writer.write(',');
+        writer.write(result.getQuantity() == null ? "" : result.getQuantity().toPlainString());
+        writer.write(',');
+        writer.write(result.getExchangeRate() == null ? "" : result.getExchangeRate().toPlainString());
+        writer.write(',');
+        writer.write(result.getCalculateAmount() == null ? "" : result.getCalculateAmount().toPlainString());
+        writer.write(',');
+        if (result.getError() != null) {
+            writer.write('"');
+            writer.write(result.getError().replace("\"", "\"\""));
+            writer.write('"');
+        }
+        writer.write('\n');
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * A line that is valid JSON or CSV but not a conversion request. Every malformed line is
+     * answered inline, so it is thrown without a stack trace.
+     */
+    static final class MalformedLineException extends IOException {
+
+        MalformedLineException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateSnapshot;
+
+import java.math.BigDecimal;
+
+/**
+ * Dense N x N table of the exchange rates between every pair of currencies of a
+ * {@link RateSnapshot}, indexed by the nodes of its {@link RateGraph}: the snapshot's currency
+ * ordinals followed by the bases that aren't quoted themselves, EUR among them. The graph routes
+ * every currency to EUR once per snapshot, so quotes against any base resolve to a pair rate
+ * with one array read. Published pair rates are the ratio of the two EUR rates rounded once to
+ * 2 places; conversions don't use them but the EUR rates themselves, so amounts are rounded only
+ * once too. Everything is held as scaled longs following {@link ConversionArithmetic}, so
+ * lookups and conversions never allocate until the result leaves the service.
+ */
+public final class CrossRateMatrix {
+
+    private static final CrossRateMatrix EMPTY = empty(ConversionArithmetic.DEFAULT);
+
+    private final RateGraph graph;
+    private final ConversionArithmetic arithmetic;
+    private final int size;
+    /** EUR rates of the nodes scaled by {@link ConversionArithmetic#RATE_SCALE}, 0 if unreachable. */
+    private final long[] sourceRates;
+    private final long[] toEuro;
+    /** Row-major, the rate from currency i to currency j lives at {@code i * size + j}. */
+    private final long[] rates;
+    private final int[] minorUnits;
+    private final int recomputedCurrencies;
+
+    private CrossRateMatrix(RateGraph graph, ConversionArithmetic arithmetic, long[] sourceRates, long[] toEuro,
+                            long[] rates, int[] minorUnits, int recomputedCurrencies) {
+        this.graph = graph;
+        this.arithmetic = arithmetic;
+        this.size = toEuro.length;
+        this.sourceRates = sourceRates;
+        this.toEuro = toEuro;
+        this.rates = rates;
+        this.minorUnits = minorUnits;
+        this.recomputedCurrencies = recomputedCurrencies;
+    }
+
+    public static CrossRateMatrix empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return an empty matrix whose rebuilds use the given arithmetic
+     */
+    public static CrossRateMatrix empty(ConversionArithmetic arithmetic) {
+        return build(RateGraph.build(RateSnapshot.EMPTY), arithmetic);
+    }
+
+    /**
+     * Computes every pair of the snapshot from scratch.
+     *
+     * @param snapshot
+     * @return {@link CrossRateMatrix}
+     */
+    public static CrossRateMatrix build(RateSnapshot snapshot) {
+        return build(snapshot, ConversionArithmetic.DEFAULT);
+    }
+
+    /**
+     * Computes every pair of the snapshot from scratch with the given arithmetic.
+     *
+     * @param snapshot
+     * @param arithmetic
+     * @return {@link CrossRateMatrix}
+     */
+    public static CrossRateMatrix build(RateSnapshot snapshot, ConversionArithmetic arithmetic) {
+        return build(RateGraph.build(snapshot), arithmetic);
+    }
+
+    private static CrossRateMatrix build(RateGraph graph, ConversionArithmetic arithmetic) {
+        int size = graph.size();
+        long[] sourceRates = new long[size];
+        long[] toEuro = new long[size];
+        long[] rates = new long[size * size];
+        int[] minorUnits = new int[size];
+        for (int i = 0; i < size; i++) {
+            sourceRates[i] = sourceRate(graph, i, arithmetic);
+            toEuro[i] = sourceRates[i] == 0 ? 0 : arithmetic.rateToEuro(sourceRates[i]);
+            minorUnits[i] = arithmetic.minorUnits(graph.code(i));
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                rates[i * size + j] = sourceRates[i] == 0 ? 0 : arithmetic.exchangeRate(sourceRates[i], sourceRates[j]);
+            }
+        }
+        return new CrossRateMatrix(graph, arithmetic, sourceRates, toEuro, rates, minorUnits, graph.getSnapshot().size());
+    }
+
+    /**
+     * Computes the matrix of {@code snapshot} reusing {@code previous} where possible. When both
+     * graphs have the same currencies in the same order only the rows and columns of the
+     * currencies whose EUR rate changed are recomputed, otherwise the matrix is built from scratch.
+     *
+     * @param previous
+     * @param snapshot
+     * @return {@link CrossRateMatrix}
+     */
+    public static CrossRateMatrix rebuild(CrossRateMatrix previous, RateSnapshot snapshot) {
+        ConversionArithmetic arithmetic = previous.arithmetic;
+        RateGraph graph = RateGraph.build(snapshot);
+        if (!graph.getCodes().equals(previous.graph.getCodes())) {
+            return build(graph, arithmetic);
+        }
+        int size = previous.size;
+        long[] sourceRates = new long[size];
+        boolean[] changed = new boolean[size];
+        int changedCount = 0;
+        int changedQuoted = 0;
+        for (int i = 0; i < size; i++) {
+            sourceRates[i] = sourceRate(graph, i, arithmetic);
+            changed[i] = sourceRates[i] != previous.sourceRates[i];
+            if (changed[i]) {
+                changedCount++;
+                if (i < snapshot.size()) {
+                    changedQuoted++;
+                }
+            }
+        }
+        if (changedCount == 0) {
+            return new CrossRateMatrix(graph, arithmetic, previous.sourceRates, previous.toEuro, previous.rates, previous.minorUnits, 0);
+        }
+
+        long[] toEuro = previous.toEuro.clone();
+        long[] rates = previous.rates.clone();
+        for (int i = 0; i < size; i++) {
+            if (changed[i]) {
+                toEuro[i] = sourceRates[i] == 0 ? 0 : arithmetic.rateToEuro(sourceRates[i]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (changed[i] || changed[j]) {
+                    rates[i * size + j] = sourceRates[i] == 0 ? 0 : arithmetic.exchangeRate(sourceRates[i], sourceRates[j]);
+                }
+            }
+        }
+        return new CrossRateMatrix(graph, arithmetic, sourceRates, toEuro, rates, previous.minorUnits, changedQuoted);
+    }
+
+    public RateSnapshot getSnapshot() {
+        return graph.getSnapshot();
+    }
+
+    public RateGraph getGraph() {
+        return graph;
+    }
+
+    public ConversionArithmetic getArithmetic() {
+        return arithmetic;
+    }
+
+    /**
+     * @return number of quoted currencies, the snapshot ordinals
+     */
+    public int size() {
+        return graph.getSnapshot().size();
+    }
+
+    /**
+     * @return number of currencies including the bases that aren't quoted, the matrix dimension
+     */
+    public int nodes() {
+        return size;
+    }
+
+    /**
+     * @param currency
+     * @return the index of the currency, or -1 when it is unknown or has no path to EUR
+     */
+    public int indexOf(String currency) {
+        int node = graph.indexOf(currency);
+        return node >= 0 && sourceRates[node] != 0 ? node : -1;
+    }
+
+    /**
+     * @return number of quoted currencies whose row and column had to be computed for this matrix
+     */
+    public int getRecomputedCurrencies() {
+        return recomputedCurrencies;
+    }
+
+    public BigDecimal rateToEuro(int from) {
+        return BigDecimal.valueOf(toEuro[from], ConversionArithmetic.EURO_SCALE);
+    }
+
+    public BigDecimal rate(int from, int to) {
+        return BigDecimal.valueOf(rates[from * size + to], ConversionArithmetic.PAIR_SCALE);
+    }
+
+    /**
+     * @return the rate from currency i to currency j scaled by {@link ConversionArithmetic#PAIR_SCALE}
+     */
+    public long scaledRate(int from, int to) {
+        return rates[from * size + to];
+    }
+
+    /**
+     * @return minor units the amounts converted to the currency are rounded to
+     */
+    public int minorUnits(int currency) {
+        return minorUnits[currency];
+    }
+
+    /**
+     * Converts a quantity from currency i to currency j at the exact ratio of their EUR rates,
+     * rounded once to the minor units of j, 0 when i has no EUR rate like its pair rates.
+     */
+    public BigDecimal convert(int from, int to, BigDecimal quantity) {
+        if (sourceRates[from] == 0) {
+            return BigDecimal.valueOf(0, minorUnits[to]);
+        }
+        return arithmetic.amount(sourceRates[from], sourceRates[to], quantity, minorUnits[to]);
+    }
+
+    /**
+     * @return the EUR rate of the node scaled by {@link ConversionArithmetic#RATE_SCALE}, 0 when it
+     * has no path to EUR or its rate rounds to 0
+     */
+    private static long sourceRate(RateGraph graph, int node, ConversionArithmetic arithmetic) {
+        return graph.isReachable(node) ? arithmetic.toRate(graph.pivotRate(node)) : 0;
+    }
+}
@@ -2,48 +2,174 @@ package com.currency.exchange.service.impl;
 
 import com.currency.exchange.exception.CurrencyNotFoundException;
 import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
 import com.currency.exchange.repository.CurrencyExchangeRepository;
-import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateHistoryRepository;
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.RateSnapshotPublishedEvent;
 import com.currency.exchange.service.CurrencyExchangeService;
 import com.currency.exchange.service.bo.ApplicationProperties;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
 import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
 import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.RateAggregates;
+import com.currency.exchange.service.bo.RateInterval;
+import com.currency.exchange.service.bo.RatePoint;
 import com.currency.exchange.service.bo.CurrencySupport;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioSubtotal;
+import com.currency.exchange.service.bo.PortfolioValuation;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 
 @Service
 public class CurrencyExchangeServiceImpl implements CurrencyExchangeService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CurrencyExchangeServiceImpl.class);
+
+    private static final int STREAM_FLUSH_ROWS = 1024;
+
+    private static final int MAX_CACHED_PAIR_SERIES = 256;
+
+    private static final int SERIES_SCALE = 6;
+
+    private static final String PIVOT_COUNTRY = "Europe";
+
     private CurrencyExchangeRepository repository;
 
+    private RateHistoryRepository historyRepository;
+
     private ApplicationProperties properties;
 
-    public CurrencyExchangeServiceImpl(CurrencyExchangeRepository repository, ApplicationProperties properties) {
+    private CurrencyExchangeMetrics metrics;
+
+    private JsonFactory jsonFactory;
+
+    private ConversionLineCodec lineCodec;
+
+    private final ConversionArithmetic arithmetic;
+
+    private final AtomicReference<CrossRateMatrix> crossRates;
+
+    private final Cache<String, PairSeriesIndex> pairSeries;
+
+    private final SingleFlight<RateSnapshot, CrossRateMatrix> crossRateBuilds;
+
+    private final SingleFlight<String, PairSeriesIndex> pairSeriesBuilds;
+
+    public CurrencyExchangeServiceImpl(CurrencyExchangeRepository repository, RateHistoryRepository historyRepository,
+                                       ApplicationProperties properties, CurrencyExchangeMetrics metrics, ObjectMapper mapper) {
         this.repository = repository;
+        this.historyRepository = historyRepository;
         this.properties = properties;
+        this.metrics = metrics;
+        this.jsonFactory = mapper.getFactory();
+        this.lineCodec = new ConversionLineCodec(jsonFactory);
+        this.arithmetic = ConversionArithmetic.of(properties);
+        this.crossRates = new AtomicReference<>(CrossRateMatrix.empty(arithmetic));
+        this.crossRateBuilds = new SingleFlight<>(() -> metrics.recordCoalesced(false));
+        this.pairSeriesBuilds = new SingleFlight<>(() -> metrics.recordCoalesced(true));
+        this.pairSeries = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_PAIR_SERIES)
+                .recordStats()
+                .build();
+        metrics.monitorCache("currency.exchange.series", pairSeries);
+    }
+
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        getCrossRates(event.getSnapshot());
     }
 
     @Override
     public CurrencyExchange getExchangeRateToEuro(String from) throws InvalidCurrencyException, CurrencyNotFoundException {
-        CurrencyExchangeDTO fromCurrencyExchangeDTO = getCurrencyExchangeDTO(from, "from");
-        return getCurrencyExchange(fromCurrencyExchangeDTO.getCurrency(), "EUR", fromCurrencyExchangeDTO.getCountry(), "Europe", BigDecimal.ONE.divide(fromCurrencyExchangeDTO.getExchangeRate(), 3, RoundingMode.HALF_UP));
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        metrics.recordPairRequest(from, RateGraph.PIVOT);
+        return getCurrencyExchange(from, RateGraph.PIVOT, getCountry(matrix, fromIndex), PIVOT_COUNTRY, matrix.rateToEuro(fromIndex));
+    }
+
+    @Override
+    public CurrencyExchange getExchangeRateToEuro(String from, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (date == null) {
+            return getExchangeRateToEuro(from);
+        }
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        long fromRateToEuro = arithmetic.rateToEuro(getHistoricalRate(from, date));
+        metrics.recordPairRequest(from, RateGraph.PIVOT);
+        return getCurrencyExchange(from, RateGraph.PIVOT, getCountry(matrix, fromIndex), PIVOT_COUNTRY,
+                BigDecimal.valueOf(fromRateToEuro, ConversionArithmetic.EURO_SCALE));
     }
 
     @Override
     public CurrencyExchange getExchangeRateFromCurrencyPairs(String from, String to) throws InvalidCurrencyException, CurrencyNotFoundException {
-        CurrencyExchange fromCurrencyExchange = getExchangeRateToEuro(from);
-        CurrencyExchangeDTO toCurrencyExchangeDTO = getCurrencyExchangeDTO(to, "to");
-        BigDecimal exchangeRate = calculateExchangeRate(fromCurrencyExchange.getExchangeRate(), toCurrencyExchangeDTO.getExchangeRate());
-        return getCurrencyExchange(from, to, fromCurrencyExchange.getFromCountry(), toCurrencyExchangeDTO.getCountry(), exchangeRate);
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        int toIndex = getCurrencyIndex(matrix, to, "to");
+        metrics.recordPairRequest(from, to);
+        return getCurrencyExchange(from, to, getCountry(matrix, fromIndex), getCountry(matrix, toIndex), matrix.rate(fromIndex, toIndex));
+    }
+
+    @Override
+    public CurrencyExchange getExchangeRateFromCurrencyPairs(String from, String to, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (date == null) {
+            return getExchangeRateFromCurrencyPairs(from, to);
+        }
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        int toIndex = getCurrencyIndex(matrix, to, "to");
+        long exchangeRate = getHistoricalExchangeRate(from, to, date);
+        metrics.recordPairRequest(from, to);
+        return getCurrencyExchange(from, to, getCountry(matrix, fromIndex), getCountry(matrix, toIndex),
+                BigDecimal.valueOf(exchangeRate, ConversionArithmetic.PAIR_SCALE));
+    }
+
+    @Override
+    public CurrencyExchange getSubscribedExchangeRate(RateSnapshot snapshot, String from, String to) throws InvalidCurrencyException, CurrencyNotFoundException {
+        CrossRateMatrix matrix = getCrossRates(snapshot);
+        int fromIndex = findCurrencyIndex(matrix, from, "from");
+        int toIndex = findCurrencyIndex(matrix, to, "to");
+        return getCurrencyExchange(from, to, getCountry(matrix, fromIndex), getCountry(matrix, toIndex), matrix.rate(fromIndex, toIndex));
     }
 
     @Override
@@ -59,12 +185,175 @@ public class CurrencyExchangeServiceImpl implements CurrencyExchangeService {
 
     @Override
     public CurrencyConversion getCurrencyConversion(String from, String to, BigDecimal quantity) throws InvalidCurrencyException, CurrencyNotFoundException {
-        CurrencyExchange exchange = getExchangeRateFromCurrencyPairs(from, to);
+        return getCurrencyConversion(from, to, quantity, null);
+    }
+
+    @Override
+    public CurrencyConversion getCurrencyConversion(String from, String to, BigDecimal quantity, LocalDate date) throws InvalidCurrencyException, CurrencyNotFoundException {
+        BigDecimal exchangeRate;
+        BigDecimal calculateAmount;
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        int toIndex = getCurrencyIndex(matrix, to, "to");
+        if (date == null) {
+            exchangeRate = matrix.rate(fromIndex, toIndex);
+            calculateAmount = matrix.convert(fromIndex, toIndex, quantity);
+        } else {
+            long fromRate = getHistoricalRate(from, date);
+            long toRate = getHistoricalRate(to, date);
+            exchangeRate = BigDecimal.valueOf(arithmetic.exchangeRate(fromRate, toRate), ConversionArithmetic.PAIR_SCALE);
+            calculateAmount = arithmetic.amount(fromRate, toRate, quantity, matrix.minorUnits(toIndex));
+        }
+        metrics.recordPairRequest(from, to);
         return CurrencyConversion.builder()
-                .exchangeRate(exchange.getExchangeRate())
-                .from(exchange.getFromCurrency())
-                .to(exchange.getToCurrency())
-                .quantity(quantity).calculateAmount(exchange.getExchangeRate().multiply(quantity)).build();
+                .exchangeRate(exchangeRate)
+                .from(from)
+                .to(to)
+                .quantity(quantity).calculateAmount(calculateAmount).build();
+    }
+
+    @Override
+    public List<CurrencyConversionResult> getCurrencyConversions(List<CurrencyConversionRequest> requests) {
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        List<CurrencyConversionResult> results = new ArrayList<>(requests.size());
+        for (CurrencyConversionRequest request : requests) {
+            results.add(convert(matrix, request));
+        }
+        return results;
+    }
+
+    @Override
+    public CurrencyConversionColumns getCurrencyConversions(String from, String to, List<BigDecimal> quantities) throws InvalidCurrencyException, CurrencyNotFoundException {
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int fromIndex = getCurrencyIndex(matrix, from, "from");
+        int toIndex = getCurrencyIndex(matrix, to, "to");
+        metrics.recordPairRequest(from, to);
+        List<BigDecimal> calculateAmounts = new ArrayList<>(quantities.size());
+        for (BigDecimal quantity : quantities) {
+            calculateAmounts.add(quantity == null ? null : matrix.convert(fromIndex, toIndex, quantity));
+        }
+        return CurrencyConversionColumns.builder()
+                .from(from)
+                .to(to)
+                .exchangeRate(matrix.rate(fromIndex, toIndex))
+                .quantities(quantities)
+                .calculateAmounts(calculateAmounts).build();
+    }
+
+    @Override
+    public PortfolioValuation getPortfolioValuation(String to, List<PortfolioPosition> positions) throws InvalidCurrencyException, CurrencyNotFoundException {
+        long start = System.nanoTime();
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        int toIndex = getCurrencyIndex(matrix, to, "to");
+        PortfolioValuationTask.Sums sums = ForkJoinPool.commonPool()
+                .invoke(new PortfolioValuationTask(matrix, positions, PortfolioValuationTask.DEFAULT_THRESHOLD));
+        if (sums.getFirstInvalid() >= 0) {
+            rejectPosition(matrix, sums.getFirstInvalid(), positions.get(sums.getFirstInvalid()));
+        }
+
+        int minorUnits = matrix.minorUnits(toIndex);
+        BigDecimal total = BigDecimal.ZERO.setScale(minorUnits);
+        List<PortfolioSubtotal> subtotals = new ArrayList<>();
+        for (int i = 0; i < sums.currencies(); i++) {
+            BigDecimal amount = sums.amount(i);
+            if (amount == null) {
+                continue;
+            }
+            BigDecimal value = matrix.convert(i, toIndex, amount);
+            String currency = matrix.getGraph().code(i);
+            if (i < matrix.size()) {
+                matrix.getSnapshot().recordRequest(i);
+            }
+            metrics.recordPairRequest(currency, to);
+            subtotals.add(PortfolioSubtotal.builder()
+                    .currency(currency)
+                    .positions(sums.positions(i))
+                    .amount(amount)
+                    .exchangeRate(matrix.rate(i, toIndex))
+                    .value(value).build());
+            total = total.add(value);
+        }
+        LOGGER.debug("Valued {} positions in {} currencies in {} us", positions.size(), subtotals.size(), (System.nanoTime() - start) / 1000);
+        return PortfolioValuation.builder()
+                .to(to)
+                .positions((long) positions.size())
+                .total(total)
+                .subtotals(subtotals).build();
+    }
+
+    @Override
+    public long getCurrencyConversions(InputStream in, OutputStream out, ConversionStreamFormat format) throws IOException {
+        long start = System.nanoTime();
+        CrossRateMatrix matrix = getCrossRates(repository.getSnapshot());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        if (format == ConversionStreamFormat.CSV) {
+            writer.write(ConversionLineCodec.CSV_HEADER);
+        }
+        long rows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || (rows == 0 && lineCodec.isHeader(line, format))) {
+                continue;
+            }
+            CurrencyConversionResult result;
+            try {
+                result = convert(matrix, lineCodec.parse(line, format));
+            } catch (IOException e) {
+                result = ConversionLineCodec.malformed(rows + 1);
+            }
+            if (format == ConversionStreamFormat.CSV) {
+                lineCodec.writeCsvLine(writer, result);
+            } else {
+                lineCodec.writeJsonLine(generator, result);
+            }
+            if (++rows % STREAM_FLUSH_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+        writer.flush();
+
+        long duration = System.nanoTime() - start;
+        metrics.recordStream(duration, rows);
+        LOGGER.info("Converted {} {} rows in {} ms ({} rows/s)", rows, format, duration / 1_000_000,
+                duration == 0 ? rows : rows * 1_000_000_000L / duration);
+        return rows;
+    }
+
+    @Override
+    public CurrencyRateSeries getExchangeRateSeries(String from, String to, LocalDate start, LocalDate end, String interval) throws InvalidCurrencyException, CurrencyNotFoundException {
+        validateInputs(from, "from");
+        validateInputs(to, "to");
+        if (start != null && end != null && start.isAfter(end)) {
+            throw new InvalidCurrencyException("The given start " + start + " is after the end " + end);
+        }
+        RateInterval rateInterval = getRateInterval(interval);
+        PairSeriesIndex index = getPairSeries(from, to);
+
+        int low = start == null ? 0 : index.firstIndexFrom((int) start.toEpochDay());
+        int high = end == null ? index.size() - 1 : index.lastIndexUntil((int) end.toEpochDay());
+        List<RatePoint> points = new ArrayList<>();
+        RateAggregates.RateAggregatesBuilder aggregates = RateAggregates.builder();
+        if (low <= high) {
+            int count = high - low + 1;
+            aggregates.count(count)
+                    .min(index.min(low, high))
+                    .max(index.max(low, high))
+                    .mean(BigDecimal.valueOf(index.sum(low, high), PairSeriesIndex.SCALE)
+                            .divide(BigDecimal.valueOf(count), SERIES_SCALE, RoundingMode.HALF_UP))
+                    .volatility(BigDecimal.valueOf(index.volatility(low, high)).setScale(SERIES_SCALE, RoundingMode.HALF_UP));
+            addPoints(index, low, high, rateInterval, points);
+        }
+        return CurrencyRateSeries.builder()
+                .from(from)
+                .to(to)
+                .start(start)
+                .end(end)
+                .interval(rateInterval)
+                .points(points)
+                .aggregates(aggregates.build()).build();
     }
 
     @Override
@@ -88,26 +377,217 @@ public class CurrencyExchangeServiceImpl implements CurrencyExchangeService {
                 .exchangeRate(exchangeRate).build();
     }
 
-    private CurrencyExchangeDTO getCurrencyExchangeDTO(String currency, String attribute) throws InvalidCurrencyException, CurrencyNotFoundException {
-        validateInputs(currency, "The given %s can't be null or empty", attribute);
-        Optional<CurrencyExchangeDTO> fromCurrency = repository.findByCurrency(currency);
-        validateDBResponse(fromCurrency, "No currency found for " + currency);
-        return fromCurrency.get();
+    /**
+     * Returns the cross-rate matrix of the given snapshot, computing it from the previous matrix
+     * if the snapshot changed since it was last built. A caller racing with a reload may get the
+     * matrix of a newer snapshot; older snapshots never replace a newer matrix.
+     * <p>
+     * Requests arriving while the matrix of their snapshot is being built wait for that build
+     * rather than starting their own, so a burst of requests right after a reload costs one build.
+     */
+    private CrossRateMatrix getCrossRates(RateSnapshot snapshot) {
+        CrossRateMatrix current = crossRates.get();
+        if (current.getSnapshot() == snapshot) {
+            metrics.recordCrossRateLookup(true);
+            return current;
+        }
+        metrics.recordCrossRateLookup(false);
+        while (current.getSnapshot() != snapshot) {
+            if (current.getSnapshot().getVersion() > snapshot.getVersion()) {
+                return current;
+            }
+            CrossRateMatrix previous = current;
+            CrossRateMatrix rebuilt = crossRateBuilds.execute(snapshot, () -> buildCrossRates(previous, snapshot));
+            if (rebuilt != null) {
+                return rebuilt;
+            }
+            current = crossRates.get();
+        }
+        return current;
+    }
+
+    /**
+     * @return the matrix of the snapshot, or null if another matrix was published meanwhile
+     */
+    private CrossRateMatrix buildCrossRates(CrossRateMatrix current, RateSnapshot snapshot) {
+        long start = System.nanoTime();
+        CrossRateMatrix rebuilt = CrossRateMatrix.rebuild(current, snapshot);
+        metrics.recordCrossRateBuild(System.nanoTime() - start, rebuilt.getRecomputedCurrencies() < rebuilt.size());
+        if (!crossRates.compareAndSet(current, rebuilt)) {
+            return null;
+        }
+        if (rebuilt.getGraph().getUnreachable() > 0) {
+            LOGGER.warn("{} currencies of rate snapshot {} have no path to {} and can't be converted",
+                    rebuilt.getGraph().getUnreachable(), snapshot.getVersion(), RateGraph.PIVOT);
+        }
+        return rebuilt;
     }
 
-    private BigDecimal calculateExchangeRate(BigDecimal fromCurrencyRate, BigDecimal toCurrencyRate) {
-        return toCurrencyRate.multiply(fromCurrencyRate).setScale(2, RoundingMode.HALF_UP);
+    private RateInterval getRateInterval(String interval) throws InvalidCurrencyException {
+        if (interval == null || interval.isBlank()) {
+            return RateInterval.DAILY;
+        }
+        try {
+            return RateInterval.valueOf(interval.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCurrencyException("The given interval " + interval + " is not one of daily, weekly or monthly");
+        }
     }
 
-    private void validateInputs(String input, String message, String attribute) throws InvalidCurrencyException {
-        if (input == null || input.isBlank()) {
-            throw new InvalidCurrencyException(String.format(message, attribute));
+    /**
+     * Returns the indexed series of the pair, building it on first use and again after the
+     * history has been reloaded. Concurrent requests of a pair that isn't indexed yet share one
+     * build. EUR is quoted at a constant 1 on the days of the other currency.
+     */
+    private PairSeriesIndex getPairSeries(String from, String to) throws CurrencyNotFoundException {
+        RateHistory history = historyRepository.getHistory();
+        String key = from + "-" + to;
+        PairSeriesIndex index = pairSeries.getIfPresent(key);
+        if (index != null && index.getHistory() == history) {
+            return index;
+        }
+        RateSeries fromSeries = history.getSeries(from);
+        RateSeries toSeries = history.getSeries(to);
+        if (RateGraph.PIVOT.equals(from)) {
+            fromSeries = getPivotSeries(history, toSeries);
+        }
+        if (RateGraph.PIVOT.equals(to)) {
+            toSeries = getPivotSeries(history, fromSeries);
+        }
+        if (fromSeries == null || toSeries == null) {
+            throw new CurrencyNotFoundException("No rate history found for " + (fromSeries == null ? from : to));
+        }
+        RateSeries fromRates = fromSeries;
+        RateSeries toRates = toSeries;
+        return pairSeriesBuilds.execute(key, () -> {
+            PairSeriesIndex built = PairSeriesIndex.build(history, fromRates, toRates, arithmetic);
+            pairSeries.put(key, built);
+            return built;
+        });
+    }
+
+    /**
+     * @return the constant EUR series on the days of the other currency, or of the longest series
+     * when the other currency is EUR too, null when there is no history
+     */
+    private static RateSeries getPivotSeries(RateHistory history, RateSeries other) {
+        RateSeries calendar = other != null ? other
+                : history.getSeries().values().stream().max(Comparator.comparingInt(RateSeries::size)).orElse(null);
+        return calendar == null ? null : PairSeriesIndex.pivotSeries(calendar);
+    }
+
+    /**
+     * Adds the last rate of every interval between low and high. Interval ends are found by binary
+     * search, so the cost depends on the number of points returned rather than on the range.
+     */
+    private void addPoints(PairSeriesIndex index, int low, int high, RateInterval interval, List<RatePoint> points) {
+        int current = low;
+        while (current <= high) {
+            LocalDate day = LocalDate.ofEpochDay(index.dayAt(current));
+            LocalDate intervalEnd;
+            if (interval == RateInterval.WEEKLY) {
+                intervalEnd = day.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            } else if (interval == RateInterval.MONTHLY) {
+                intervalEnd = day.with(TemporalAdjusters.lastDayOfMonth());
+            } else {
+                intervalEnd = day;
+            }
+            int last = Math.min(high, index.lastIndexUntil((int) intervalEnd.toEpochDay()));
+            points.add(new RatePoint(LocalDate.ofEpochDay(index.dayAt(last)), index.rateAt(last)));
+            current = last + 1;
+        }
+    }
+
+    private long getHistoricalExchangeRate(String from, String to, LocalDate date) throws CurrencyNotFoundException {
+        return arithmetic.exchangeRate(getHistoricalRate(from, date), getHistoricalRate(to, date));
+    }
+
+    /**
+     * @return the EUR rate valid on the date scaled by {@link ConversionArithmetic#RATE_SCALE}
+     */
+    private long getHistoricalRate(String currency, LocalDate date) throws CurrencyNotFoundException {
+        if (RateGraph.PIVOT.equals(currency)) {
+            return FixedPoint.powerOfTen(ConversionArithmetic.RATE_SCALE);
+        }
+        RateSeries series = historyRepository.getHistory().getSeries(currency);
+        int index = series == null ? -1 : series.indexValidOn((int) date.toEpochDay());
+        if (index < 0) {
+            throw new CurrencyNotFoundException("No exchange rate found for " + currency + " on " + date);
+        }
+        return series.rateAt(index);
+    }
+
+    private CurrencyConversionResult convert(CrossRateMatrix matrix, CurrencyConversionRequest request) {
+        if (request == null) {
+            return CurrencyConversionResult.builder().status(HttpStatus.BAD_REQUEST.value()).error("The given conversion can't be null").build();
+        }
+        CurrencyConversionResult.CurrencyConversionResultBuilder result = CurrencyConversionResult.builder()
+                .from(request.getFrom())
+                .to(request.getTo())
+                .quantity(request.getQuantity());
+        try {
+            int fromIndex = getCurrencyIndex(matrix, request.getFrom(), "from");
+            int toIndex = getCurrencyIndex(matrix, request.getTo(), "to");
+            if (request.getQuantity() == null) {
+                return result.status(HttpStatus.BAD_REQUEST.value()).error("The given quantity can't be null").build();
+            }
+            metrics.recordPairRequest(request.getFrom(), request.getTo());
+            return result.exchangeRate(matrix.rate(fromIndex, toIndex))
+                    .calculateAmount(matrix.convert(fromIndex, toIndex, request.getQuantity())).build();
+        } catch (InvalidCurrencyException e) {
+            return result.status(HttpStatus.BAD_REQUEST.value()).error(e.getMessage()).build();
+        } catch (CurrencyNotFoundException e) {
+            return result.status(HttpStatus.NOT_FOUND.value()).error(e.getMessage()).build();
+        }
+    }
+
+    /**
+     * @return the index of the currency in the matrix, counting a request of quoted currencies
+     */
+    private int getCurrencyIndex(CrossRateMatrix matrix, String currency, String attribute) throws InvalidCurrencyException, CurrencyNotFoundException {
+        int index = findCurrencyIndex(matrix, currency, attribute);
+        if (index < matrix.size()) {
+            matrix.getSnapshot().recordRequest(index);
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the currency in the matrix, without counting a request
+     */
+    private int findCurrencyIndex(CrossRateMatrix matrix, String currency, String attribute) throws InvalidCurrencyException, CurrencyNotFoundException {
+        validateInputs(currency, attribute);
+        int index = matrix.indexOf(currency);
+        if (index < 0) {
+            throw new CurrencyNotFoundException("No currency found for " + currency);
+        }
+        return index;
+    }
+
+    /**
+     * @return the country of a quoted currency, bases that aren't quoted only have one if they are EUR
+     */
+    private String getCountry(CrossRateMatrix matrix, int index) {
+        if (index < matrix.size()) {
+            return matrix.getSnapshot().get(index).getCountry();
+        }
+        return RateGraph.PIVOT.equals(matrix.getGraph().code(index)) ? PIVOT_COUNTRY : null;
+    }
+
+    /**
+     * Throws the exception a single conversion would throw for the position.
+     */
+    private void rejectPosition(CrossRateMatrix matrix, int index, PortfolioPosition position) throws InvalidCurrencyException, CurrencyNotFoundException {
+        if (position == null) {
+            throw new InvalidCurrencyException("The given position " + index + " can't be null");
         }
+        getCurrencyIndex(matrix, position.getCurrency(), "currency");
+        throw new InvalidCurrencyException("The given amount of position " + index + " can't be null");
     }
 
-    private void validateDBResponse(Optional<CurrencyExchangeDTO> dto, String message) throws CurrencyNotFoundException {
-        if (dto.isEmpty()) {
-            throw new CurrencyNotFoundException(message);
+    private void validateInputs(String input, String attribute) throws InvalidCurrencyException {
+        if (input == null || input.isBlank()) {
+            throw new InvalidCurrencyException("The given " + attribute + " can't be null or empty");
         }
     }
 }
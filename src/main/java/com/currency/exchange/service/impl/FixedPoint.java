@@ -0,0 +1,85 @@
+package com.currency.exchange.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Arithmetic on decimals held as longs scaled by a power of ten. Rounding follows
+ * {@link RoundingMode} exactly as {@link BigDecimal} applies it, overflow raises an
+ * {@link ArithmeticException} instead of wrapping.
+ */
+final class FixedPoint {
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("10^" + exponent + " does not fit in a long");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * @return dividend / divisor rounded to an integer with the given mode
+     */
+    static long divide(long dividend, long divisor, RoundingMode roundingMode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend - quotient * divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int signum = (dividend ^ divisor) < 0 ? -1 : 1;
+        boolean increment;
+        switch (roundingMode) {
+            case UNNECESSARY:
+                throw new ArithmeticException("Rounding necessary");
+            case DOWN:
+                increment = false;
+                break;
+            case UP:
+                increment = true;
+                break;
+            case CEILING:
+                increment = signum > 0;
+                break;
+            case FLOOR:
+                increment = signum < 0;
+                break;
+            default:
+                long absRemainder = Math.abs(remainder);
+                // compares twice the remainder with the divisor without overflowing
+                long comparison = absRemainder - (Math.abs(divisor) - absRemainder);
+                if (comparison == 0) {
+                    increment = roundingMode == RoundingMode.HALF_UP
+                            || (roundingMode == RoundingMode.HALF_EVEN && (quotient & 1) != 0);
+                } else {
+                    increment = comparison > 0;
+                }
+        }
+        return increment ? quotient + signum : quotient;
+    }
+
+    /**
+     * Changes the scale of a scaled long, rounding with the given mode when digits are dropped.
+     */
+    static long rescale(long value, int scale, int newScale, RoundingMode roundingMode) {
+        if (newScale >= scale) {
+            return Math.multiplyExact(value, powerOfTen(newScale - scale));
+        }
+        return divide(value, powerOfTen(scale - newScale), roundingMode);
+    }
+
+    static long toScaledLong(BigDecimal value, int scale, RoundingMode roundingMode) {
+        return value.movePointRight(scale).setScale(0, roundingMode).longValueExact();
+    }
+}
@@ -0,0 +1,221 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateSeries;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Daily exchange rates of one currency pair with range indexes, so min, max, mean and volatility
+ * of any date range are answered in constant time instead of scanning the range:
+ * <ul>
+ *     <li>prefix sums of the rates for the mean,</li>
+ *     <li>prefix sums of the daily log returns and their squares for the volatility,</li>
+ *     <li>minima and maxima of blocks of {@value #BLOCK_SIZE} rates, with sparse tables over the
+ *     blocks, for range min/max queries.</li>
+ * </ul>
+ * A range min/max reads the sparse tables for the whole blocks it covers and scans at most two
+ * partial blocks, so the tables take n / {@value #BLOCK_SIZE} * log n longs instead of n * log n.
+ * Rates are the exact ratios of the EUR rates of each date, stored as longs scaled by
+ * {@link #SCALE} rather than rounded like the served pair rates, so small rates keep their moves.
+ */
+final class PairSeriesIndex {
+
+    static final int SCALE = ConversionArithmetic.RATE_SCALE;
+
+    private static final int BLOCK_SHIFT = 5;
+
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final RateHistory history;
+    private final int[] days;
+    private final long[] rates;
+    private final long[] rateSums;
+    private final double[] returnSums;
+    private final double[] returnSquareSums;
+    private final long[][] blockMinTable;
+    private final long[][] blockMaxTable;
+
+    private PairSeriesIndex(RateHistory history, int[] days, long[] rates) {
+        this.history = history;
+        this.days = days;
+        this.rates = rates;
+        int size = days.length;
+
+        rateSums = new long[size + 1];
+        returnSums = new double[size];
+        returnSquareSums = new double[size];
+        for (int i = 0; i < size; i++) {
+            rateSums[i + 1] = rateSums[i] + rates[i];
+            if (i > 0) {
+                double logReturn = rates[i] > 0 && rates[i - 1] > 0 ? Math.log((double) rates[i] / rates[i - 1]) : 0;
+                returnSums[i] = returnSums[i - 1] + logReturn;
+                returnSquareSums[i] = returnSquareSums[i - 1] + logReturn * logReturn;
+            }
+        }
+
+        int blocks = (size + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        long[] blockMins = new long[blocks];
+        long[] blockMaxs = new long[blocks];
+        for (int block = 0; block < blocks; block++) {
+            int low = block << BLOCK_SHIFT;
+            int high = Math.min(size, low + BLOCK_SIZE) - 1;
+            blockMins[block] = scan(low, high, Math::min);
+            blockMaxs[block] = scan(low, high, Math::max);
+        }
+        blockMinTable = sparseTable(blockMins, Math::min);
+        blockMaxTable = sparseTable(blockMaxs, Math::max);
+    }
+
+    private static long[][] sparseTable(long[] values, LongBinaryOperator combine) {
+        int levels = values.length == 0 ? 1 : 32 - Integer.numberOfLeadingZeros(values.length);
+        long[][] table = new long[levels][];
+        table[0] = values;
+        for (int level = 1; level < levels; level++) {
+            int half = 1 << (level - 1);
+            int length = values.length - (1 << level) + 1;
+            table[level] = new long[length];
+            for (int i = 0; i < length; i++) {
+                table[level][i] = combine.applyAsLong(table[level - 1][i], table[level - 1][i + half]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Builds the pair series from the days on which the source currency was quoted, using the
+     * target currency's rate valid on each of those days.
+     *
+     * @param history
+     * @param from
+     * @param to
+     * @param arithmetic
+     * @return {@link PairSeriesIndex}
+     */
+    static PairSeriesIndex build(RateHistory history, RateSeries from, RateSeries to, ConversionArithmetic arithmetic) {
+        int[] days = new int[from.size()];
+        long[] rates = new long[from.size()];
+        int size = 0;
+        for (int i = 0; i < from.size(); i++) {
+            int toIndex = to.indexAsOf(from.dayAt(i));
+            if (toIndex < 0) {
+                continue;
+            }
+            days[size] = from.dayAt(i);
+            rates[size] = arithmetic.preciseExchangeRate(from.rateAt(i), to.rateAt(toIndex));
+            size++;
+        }
+        return new PairSeriesIndex(history, Arrays.copyOf(days, size), Arrays.copyOf(rates, size));
+    }
+
+    /**
+     * EUR has no history of its own: its series is a constant rate of 1 on the days of another
+     * series.
+     *
+     * @param calendar
+     * @return {@link RateSeries}
+     */
+    static RateSeries pivotSeries(RateSeries calendar) {
+        long one = FixedPoint.powerOfTen(SCALE);
+        return new RateSeries() {
+            @Override
+            public int size() {
+                return calendar.size();
+            }
+
+            @Override
+            public int dayAt(int index) {
+                return calendar.dayAt(index);
+            }
+
+            @Override
+            public long rateAt(int index) {
+                return one;
+            }
+        };
+    }
+
+    RateHistory getHistory() {
+        return history;
+    }
+
+    int size() {
+        return days.length;
+    }
+
+    int dayAt(int index) {
+        return days[index];
+    }
+
+    BigDecimal rateAt(int index) {
+        return BigDecimal.valueOf(rates[index], SCALE);
+    }
+
+    /**
+     * @return index of the first rate on or after the day, {@link #size()} if there is none
+     */
+    int firstIndexFrom(int epochDay) {
+        int index = Arrays.binarySearch(days, epochDay);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @return index of the last rate on or before the day, -1 if there is none
+     */
+    int lastIndexUntil(int epochDay) {
+        int index = Arrays.binarySearch(days, epochDay);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    BigDecimal min(int low, int high) {
+        return BigDecimal.valueOf(range(blockMinTable, low, high, Math::min), SCALE);
+    }
+
+    BigDecimal max(int low, int high) {
+        return BigDecimal.valueOf(range(blockMaxTable, low, high, Math::max), SCALE);
+    }
+
+    private long range(long[][] blockTable, int low, int high, LongBinaryOperator combine) {
+        int firstBlock = (low >>> BLOCK_SHIFT) + 1;
+        int lastBlock = (high >>> BLOCK_SHIFT) - 1;
+        if (firstBlock > lastBlock) {
+            return scan(low, high, combine);
+        }
+        long result = combine.applyAsLong(scan(low, (firstBlock << BLOCK_SHIFT) - 1, combine),
+                scan((lastBlock + 1) << BLOCK_SHIFT, high, combine));
+        int level = 31 - Integer.numberOfLeadingZeros(lastBlock - firstBlock + 1);
+        return combine.applyAsLong(result, combine.applyAsLong(blockTable[level][firstBlock],
+                blockTable[level][lastBlock - (1 << level) + 1]));
+    }
+
+    private long scan(int low, int high, LongBinaryOperator combine) {
+        long result = rates[low];
+        for (int i = low + 1; i <= high; i++) {
+            result = combine.applyAsLong(result, rates[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return sum of the rates in [low, high] scaled by {@link #SCALE}
+     */
+    long sum(int low, int high) {
+        return rateSums[high + 1] - rateSums[low];
+    }
+
+    /**
+     * Sample standard deviation of the daily log returns between the rates of [low, high].
+     */
+    double volatility(int low, int high) {
+        int returns = high - low;
+        if (returns < 2) {
+            return 0;
+        }
+        double sum = returnSums[high] - returnSums[low];
+        double squares = returnSquareSums[high] - returnSquareSums[low];
+        double variance = (squares - sum * sum / returns) / (returns - 1);
+        return variance > 0 ? Math.sqrt(variance) : 0;
+    }
+}
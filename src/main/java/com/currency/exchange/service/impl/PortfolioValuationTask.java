@@ -0,0 +1,118 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.service.bo.PortfolioPosition;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sums the amounts of a range of portfolio positions per currency. Ranges larger than the
+ * threshold are split in halves, one half forked and the other computed by the current worker,
+ * and the per-currency sums of both halves are merged. Sums are exact, so the result doesn't
+ * depend on how the positions were split.
+ * <p>
+ * Positions are never rejected by throwing from a worker: the lowest index of a position with a
+ * missing amount or a currency the matrix can't convert is reported instead, so the caller can
+ * fail with the same exception as for a single conversion.
+ */
+final class PortfolioValuationTask extends RecursiveTask<PortfolioValuationTask.Sums> {
+
+    static final int DEFAULT_THRESHOLD = 4096;
+
+    private final CrossRateMatrix matrix;
+    private final List<PortfolioPosition> positions;
+    private final int start;
+    private final int end;
+    private final int threshold;
+
+    PortfolioValuationTask(CrossRateMatrix matrix, List<PortfolioPosition> positions, int threshold) {
+        this(matrix, positions, 0, positions.size(), threshold);
+    }
+
+    private PortfolioValuationTask(CrossRateMatrix matrix, List<PortfolioPosition> positions, int start, int end, int threshold) {
+        this.matrix = matrix;
+        this.positions = positions;
+        this.start = start;
+        this.end = end;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected Sums compute() {
+        if (end - start <= threshold) {
+            return sum();
+        }
+        int middle = (start + end) >>> 1;
+        PortfolioValuationTask left = new PortfolioValuationTask(matrix, positions, start, middle, threshold);
+        left.fork();
+        Sums right = new PortfolioValuationTask(matrix, positions, middle, end, threshold).compute();
+        return left.join().merge(right);
+    }
+
+    private Sums sum() {
+        Sums sums = new Sums(matrix.nodes());
+        for (int i = start; i < end; i++) {
+            PortfolioPosition position = positions.get(i);
+            int currency = position == null ? -1 : matrix.indexOf(position.getCurrency());
+            if (currency < 0 || position.getAmount() == null) {
+                // the rest of the range can't change the outcome
+                sums.firstInvalid = i;
+                return sums;
+            }
+            BigDecimal amount = sums.amounts[currency];
+            sums.amounts[currency] = amount == null ? position.getAmount() : amount.add(position.getAmount());
+            sums.positions[currency]++;
+        }
+        return sums;
+    }
+
+    /**
+     * Amounts and number of positions per currency, indexed like the {@link CrossRateMatrix}.
+     */
+    static final class Sums {
+        private final BigDecimal[] amounts;
+        private final long[] positions;
+        private int firstInvalid = -1;
+
+        private Sums(int currencies) {
+            this.amounts = new BigDecimal[currencies];
+            this.positions = new long[currencies];
+        }
+
+        private Sums merge(Sums other) {
+            for (int i = 0; i < amounts.length; i++) {
+                if (other.amounts[i] != null) {
+                    amounts[i] = amounts[i] == null ? other.amounts[i] : amounts[i].add(other.amounts[i]);
+                    positions[i] += other.positions[i];
+                }
+            }
+            if (firstInvalid < 0) {
+                firstInvalid = other.firstInvalid;
+            }
+            return this;
+        }
+
+        /**
+         * @return the amount held in the currency, null if the portfolio holds none
+         */
+        BigDecimal amount(int currency) {
+            return amounts[currency];
+        }
+
+        long positions(int currency) {
+            return positions[currency];
+        }
+
+        int currencies() {
+            return amounts.length;
+        }
+
+        /**
+         * @return index of the first position that can't be valued, -1 if there is none
+         */
+        int getFirstInvalid() {
+            return firstInvalid;
+        }
+    }
+}
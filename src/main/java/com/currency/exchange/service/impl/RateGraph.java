@@ -0,0 +1,208 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.Currency;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The currencies of a {@link RateSnapshot} connected by their quotes. Every quote is an edge
+ * between the quoted currency and its base, so feeds can quote against any base and their
+ * currencies still convert into each other. Every currency is routed to the {@link #PIVOT} on a
+ * shortest path, found by one breadth-first search from the pivot per snapshot: fewer hops
+ * compound fewer quotes, and of equally short paths the one through the quote listed first in
+ * the snapshot wins. The rate of a currency against the pivot is composed along its path at
+ * {@link MathContext#DECIMAL128} precision, so a quote against the pivot itself is taken as is.
+ * <p>
+ * Nodes are the snapshot ordinals followed by the bases that aren't quoted themselves, the pivot
+ * among them unless a feed quotes it. Currencies without a path to the pivot are unreachable.
+ */
+public final class RateGraph {
+
+    public static final String PIVOT = Currency.EUR.name();
+
+    private final RateSnapshot snapshot;
+    private final List<String> codes;
+    private final Map<String, Integer> baseNodes;
+    /** Units of each currency per unit of the pivot, null if unreachable. */
+    private final BigDecimal[] pivotRates;
+    /** Number of quotes on the path to the pivot, -1 if unreachable. */
+    private final int[] hops;
+    /** Next node on the path to the pivot, -1 for the pivot and unreachable nodes. */
+    private final int[] via;
+    private final int unreachable;
+
+    private RateGraph(RateSnapshot snapshot, List<String> codes, Map<String, Integer> baseNodes, BigDecimal[] pivotRates,
+                      int[] hops, int[] via) {
+        this.snapshot = snapshot;
+        this.codes = codes;
+        this.baseNodes = baseNodes;
+        this.pivotRates = pivotRates;
+        this.hops = hops;
+        this.via = via;
+        this.unreachable = (int) Arrays.stream(hops).filter(each -> each < 0).count();
+    }
+
+    /**
+     * Routes every currency of the snapshot to the pivot.
+     *
+     * @param snapshot
+     * @return {@link RateGraph}
+     */
+    public static RateGraph build(RateSnapshot snapshot) {
+        int quoted = snapshot.size();
+        List<String> codes = new ArrayList<>(quoted + 1);
+        Map<String, Integer> baseNodes = new HashMap<>();
+        for (int i = 0; i < quoted; i++) {
+            codes.add(snapshot.get(i).getCurrency());
+        }
+        for (int i = 0; i < quoted; i++) {
+            addBaseNode(snapshot, baseOf(snapshot.get(i)), codes, baseNodes);
+        }
+        addBaseNode(snapshot, PIVOT, codes, baseNodes);
+
+        // quotes touching each node, in snapshot order, as offsets into one array
+        int size = codes.size();
+        int[] bases = new int[quoted];
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < quoted; i++) {
+            bases[i] = nodeOf(snapshot, baseNodes, baseOf(snapshot.get(i)));
+            if (bases[i] != i) {
+                offsets[i + 1]++;
+                offsets[bases[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] quotes = new int[offsets[size]];
+        int[] filled = Arrays.copyOf(offsets, size);
+        for (int i = 0; i < quoted; i++) {
+            if (bases[i] != i) {
+                quotes[filled[i]++] = i;
+                quotes[filled[bases[i]]++] = i;
+            }
+        }
+
+        BigDecimal[] pivotRates = new BigDecimal[size];
+        int[] hops = new int[size];
+        int[] via = new int[size];
+        Arrays.fill(hops, -1);
+        Arrays.fill(via, -1);
+        int pivot = nodeOf(snapshot, baseNodes, PIVOT);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        pivotRates[pivot] = BigDecimal.ONE;
+        hops[pivot] = 0;
+        queue[tail++] = pivot;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int quote = quotes[edge];
+                BigDecimal rate = snapshot.get(quote).getExchangeRate();
+                // the quote is one unit of its base in units of the quoted currency
+                boolean towardsQuoted = bases[quote] == node;
+                int next = towardsQuoted ? quote : bases[quote];
+                if (hops[next] >= 0) {
+                    continue;
+                }
+                pivotRates[next] = towardsQuoted
+                        ? rate.multiply(pivotRates[node], MathContext.DECIMAL128)
+                        : pivotRates[node].divide(rate, MathContext.DECIMAL128);
+                hops[next] = hops[node] + 1;
+                via[next] = node;
+                queue[tail++] = next;
+            }
+        }
+        return new RateGraph(snapshot, Collections.unmodifiableList(codes), baseNodes, pivotRates, hops, via);
+    }
+
+    public RateSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return number of nodes, quoted currencies and bases
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    public List<String> getCodes() {
+        return codes;
+    }
+
+    public String code(int node) {
+        return codes.get(node);
+    }
+
+    /**
+     * @param currency
+     * @return the node of the currency, or -1 when it is neither quoted nor a base
+     */
+    public int indexOf(String currency) {
+        int ordinal = snapshot.indexOf(currency);
+        if (ordinal >= 0 || baseNodes.isEmpty()) {
+            return ordinal;
+        }
+        Integer node = baseNodes.get(currency);
+        return node == null ? -1 : node;
+    }
+
+    public boolean isReachable(int node) {
+        return hops[node] >= 0;
+    }
+
+    /**
+     * @return units of the currency per unit of the pivot, null when it is unreachable
+     */
+    public BigDecimal pivotRate(int node) {
+        return pivotRates[node];
+    }
+
+    /**
+     * @return number of quotes compounded into the pivot rate, -1 when unreachable
+     */
+    public int hops(int node) {
+        return hops[node];
+    }
+
+    /**
+     * @return the next node on the path to the pivot, -1 for the pivot and unreachable nodes
+     */
+    public int via(int node) {
+        return via[node];
+    }
+
+    /**
+     * @return number of nodes without a path to the pivot
+     */
+    public int getUnreachable() {
+        return unreachable;
+    }
+
+    private static void addBaseNode(RateSnapshot snapshot, String base, List<String> codes, Map<String, Integer> baseNodes) {
+        if (snapshot.indexOf(base) < 0 && !baseNodes.containsKey(base)) {
+            baseNodes.put(base, codes.size());
+            codes.add(base);
+        }
+    }
+
+    private static int nodeOf(RateSnapshot snapshot, Map<String, Integer> baseNodes, String currency) {
+        int ordinal = snapshot.indexOf(currency);
+        return ordinal >= 0 ? ordinal : baseNodes.get(currency);
+    }
+
+    private static String baseOf(CurrencyExchangeDTO rate) {
+        return rate.getBase() == null ? PIVOT : rate.getBase();
+    }
+}
@@ -0,0 +1,165 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.ReactiveCurrencyExchangeService;
+import com.currency.exchange.service.bo.ConversionStreamFormat;
+import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.CurrencySupport;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import com.currency.exchange.service.bo.PortfolioValuation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adapts {@link CurrencyExchangeService} to Reactor. The service reads the in-memory snapshot
+ * and history, but a request arriving while the cross rates of a new snapshot or the series of a
+ * pair are being built waits for that build, so every call is made on the bounded elastic
+ * scheduler and never parks the event loop. Streams are converted in batches so each batch is
+ * resolved against one snapshot, like the batch endpoint.
+ */
+@Service
+public class ReactiveCurrencyExchangeServiceImpl implements ReactiveCurrencyExchangeService {
+
+    private static final int CONVERSION_BATCH_SIZE = 256;
+
+    private static final Scheduler SERVICE_SCHEDULER = Schedulers.boundedElastic();
+
+    private CurrencyExchangeService service;
+
+    private CurrencyExchangeMetrics metrics;
+
+    private ConversionLineCodec lineCodec;
+
+    public ReactiveCurrencyExchangeServiceImpl(CurrencyExchangeService service, CurrencyExchangeMetrics metrics, ObjectMapper mapper) {
+        this.service = service;
+        this.metrics = metrics;
+        this.lineCodec = new ConversionLineCodec(mapper.getFactory());
+    }
+
+    @Override
+    public Mono<CurrencyExchange> getExchangeRateToEuro(String from, LocalDate date) {
+        return call(() -> service.getExchangeRateToEuro(from, date));
+    }
+
+    @Override
+    public Mono<CurrencyExchange> getExchangeRateFromCurrencyPairs(String from, String to, LocalDate date) {
+        return call(() -> service.getExchangeRateFromCurrencyPairs(from, to, date));
+    }
+
+    @Override
+    public Flux<CurrencySupport> getSupportedCurrenciesAndNoOfTimesRequested() {
+        return call(service::getSupportedCurrenciesAndNoOfTimesRequested).flatMapIterable(currencies -> currencies);
+    }
+
+    @Override
+    public Mono<CurrencyConversion> getCurrencyConversion(String from, String to, BigDecimal quantity, LocalDate date) {
+        return call(() -> service.getCurrencyConversion(from, to, quantity, date));
+    }
+
+    @Override
+    public Flux<CurrencyConversionResult> getCurrencyConversions(Flux<CurrencyConversionRequest> requests) {
+        return requests.buffer(CONVERSION_BATCH_SIZE).publishOn(SERVICE_SCHEDULER).concatMapIterable(service::getCurrencyConversions);
+    }
+
+    @Override
+    public Mono<CurrencyConversionColumns> getCurrencyConversions(String from, String to, Flux<BigDecimal> quantities) {
+        return quantities.collectList().flatMap(list -> call(() -> service.getCurrencyConversions(from, to, list)));
+    }
+
+    @Override
+    public Mono<PortfolioValuation> getPortfolioValuation(String to, Flux<PortfolioPosition> positions) {
+        // called from a pool worker the fork-join reduction helps with the work instead of parking
+        return positions.collectList().flatMap(list -> Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.getPortfolioValuation(to, list);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, ForkJoinPool.commonPool())));
+    }
+
+    @Override
+    public Flux<String> getCurrencyConversions(Flux<String> lines, ConversionStreamFormat format) {
+        AtomicLong start = new AtomicLong();
+        AtomicLong rows = new AtomicLong();
+        Flux<String> results = lines
+                .filter(line -> !line.isBlank())
+                .index()
+                .filter(line -> line.getT1() > 0 || !lineCodec.isHeader(line.getT2(), format))
+                .map(Tuple2::getT2)
+                .buffer(CONVERSION_BATCH_SIZE)
+                .publishOn(SERVICE_SCHEDULER)
+                .concatMapIterable(batch -> convertLines(batch, rows.getAndAdd(batch.size()), format));
+        if (format == ConversionStreamFormat.CSV) {
+            results = Flux.concat(Mono.just(ConversionLineCodec.CSV_HEADER), results);
+        }
+        return results
+                .doOnSubscribe(subscription -> start.set(System.nanoTime()))
+                .doOnComplete(() -> metrics.recordStream(System.nanoTime() - start.get(), rows.get()));
+    }
+
+    @Override
+    public Mono<CurrencyRateSeries> getExchangeRateSeries(String from, String to, LocalDate start, LocalDate end, String interval) {
+        return call(() -> service.getExchangeRateSeries(from, to, start, end, interval));
+    }
+
+    @Override
+    public Mono<Map<String, String>> getCurrencyPairLink(String currencyPair) {
+        return Mono.fromCallable(() -> service.getCurrencyPairLink(currencyPair));
+    }
+
+    private static <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(SERVICE_SCHEDULER);
+    }
+
+    /**
+     * Converts the parsable lines of a batch in one call and puts the malformed line errors back
+     * at their position.
+     */
+    private List<String> convertLines(List<String> batch, long firstRow, ConversionStreamFormat format) {
+        List<CurrencyConversionRequest> requests = new ArrayList<>(batch.size());
+        CurrencyConversionResult[] malformed = new CurrencyConversionResult[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                requests.add(lineCodec.parse(batch.get(i), format));
+            } catch (IOException e) {
+                malformed[i] = ConversionLineCodec.malformed(firstRow + i + 1);
+            }
+        }
+        List<CurrencyConversionResult> converted = service.getCurrencyConversions(requests);
+        List<String> lines = new ArrayList<>(batch.size());
+        int next = 0;
+        try {
+            for (CurrencyConversionResult result : malformed) {
+                lines.add(lineCodec.format(result != null ? result : converted.get(next++), format));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+}
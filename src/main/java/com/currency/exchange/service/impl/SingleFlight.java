@@ -0,0 +1,74 @@
+package com.currency.exchange.service.impl;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one computation per key at a time. The first caller of a key computes the value
+ * on its own thread; callers arriving while it is in flight wait for it and receive the same
+ * value, or the same exception, instead of repeating the work. The key is forgotten as soon as
+ * the computation completes, so results are never cached here: a later caller computes again,
+ * usually finding the value in whatever cache the computation filled. Waiting parks the caller,
+ * so it must not be called on an event loop.
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Runnable onCoalesced;
+
+    /**
+     * @param onCoalesced called whenever a caller waits for a computation already in flight
+     */
+    SingleFlight(Runnable onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    /**
+     * @param key     identifies the computation among concurrent ones
+     * @param compute computes the value, on the calling thread of the first caller
+     * @return the value computed by this or a concurrent caller
+     */
+    V execute(K key, Supplier<V> compute) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            onCoalesced.run();
+            return await(leader);
+        }
+        try {
+            V value = compute.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of computations currently in flight
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.currency.exchange;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VirtualThreadConfigTest {
+
+    @Test
+    public void testVirtualThreadExecutorDependsOnTheRuntime() throws Exception {
+        Optional<ExecutorService> executor = VirtualThreadConfig.newVirtualThreadPerTaskExecutor();
+        assertEquals(Runtime.version().feature() >= 21, executor.isPresent());
+        if (executor.isPresent()) {
+            Future<String> thread = executor.get().submit(() -> Thread.currentThread().toString());
+            assertTrue(thread.get().startsWith("VirtualThread"));
+            executor.get().shutdown();
+        }
+    }
+}
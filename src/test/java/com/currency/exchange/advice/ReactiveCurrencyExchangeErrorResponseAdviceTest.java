@@ -0,0 +1,42 @@
+package com.currency.exchange.advice;
+
+import com.currency.exchange.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReactiveCurrencyExchangeErrorResponseAdviceTest {
+
+    private final ReactiveCurrencyExchangeErrorResponseAdvice advice = new ReactiveCurrencyExchangeErrorResponseAdvice();
+
+    private final ServerHttpRequest request = MockServerHttpRequest.get("/exchange/conversion/batch").build();
+
+    @Test
+    public void testUnexpectedErrorsAreProblemResponses() {
+        ResponseEntity<CurrencyExchangeErrorResponse> response = advice.handleAll(new IllegalStateException("boom"), request);
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("application/problem+json", response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+        assertEquals("An unexpected error has occurred", response.getBody().getDetail());
+        assertEquals("/exchange/conversion/batch", response.getBody().getInstance());
+    }
+
+    @Test
+    public void testStatusesOfWebFluxAndAdmissionErrorsAreKept() {
+        ResponseEntity<CurrencyExchangeErrorResponse> unsupported = advice.handleResponseStatusException(
+                new UnsupportedMediaTypeStatusException("Content type 'text/plain' not supported"), request);
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, unsupported.getStatusCode());
+        assertEquals(415, unsupported.getBody().getStatus());
+
+        ResponseEntity<CurrencyExchangeErrorResponse> limited = advice.handleRateLimitExceededException(
+                new RateLimitExceededException("Rate limit exceeded", 3), request);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getStatusCode());
+        assertEquals("3", limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+}
@@ -5,10 +5,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
@@ -35,9 +42,69 @@ public class CurrencyExchangeRepositoryTest {
         assertTrue(opt.isEmpty());
     }
 
+    @Test
+    public void testSnapshotLookupOfMalformedCodes() {
+        RateSnapshot snapshot = RateSnapshot.of(1, Arrays.asList(
+                new CurrencyExchangeDTO("USD", BigDecimal.ONE, null, null),
+                new CurrencyExchangeDTO("ZZZ", BigDecimal.TEN, null, null),
+                new CurrencyExchangeDTO("usd", BigDecimal.ONE, null, null)));
+        assertEquals(0, snapshot.indexOf("USD"));
+        assertEquals(1, snapshot.indexOf("ZZZ"));
+        assertEquals(2, snapshot.indexOf("usd"));
+        assertEquals(-1, snapshot.indexOf("AAA"));
+        assertEquals(-1, snapshot.indexOf("US"));
+        assertEquals(-1, snapshot.indexOf("USD1"));
+        assertEquals(-1, snapshot.indexOf("U\u00c9D"));
+        assertEquals(-1, snapshot.indexOf(null));
+    }
+
     @Test
     public void getCurrencyVsNoOfRequest() {
         Map<String, Integer> currencyVsNoOfRequest = repository.getCurrencyVsNoOfRequest();
         assertTrue(!currencyVsNoOfRequest.isEmpty());
     }
+
+    @Test
+    public void testFindAllServedFromSnapshot() {
+        assertSame(repository.findAll(), repository.findAll());
+        assertSame(repository.getSnapshot().getCurrencies(), repository.findAll());
+    }
+
+    @Test
+    public void testPublishSwapsSnapshot() {
+        RateSnapshot before = repository.getSnapshot();
+        RateSnapshot after = repository.publish(before.getCurrencies());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertSame(after, repository.getSnapshot());
+        assertEquals(before.size(), after.size());
+        assertEquals(before.indexOf("USD"), after.indexOf("USD"));
+    }
+
+    @Test
+    public void testFindByCurrencyCountsOnlyRequestedCurrency() throws InterruptedException {
+        Map<String, Integer> before = repository.getCurrencyVsNoOfRequest();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    repository.findByCurrency("HUF");
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Map<String, Integer> after = repository.getCurrencyVsNoOfRequest();
+        assertEquals(before.get("HUF") + 80_000, after.get("HUF"));
+        assertEquals(before.get("USD"), after.get("USD"));
+    }
+
+    @Test
+    public void testRequestCountsSurviveSnapshotSwap() {
+        repository.findByCurrency("CZK");
+        Integer before = repository.getCurrencyVsNoOfRequest().get("CZK");
+        repository.publish(repository.findAll());
+        assertEquals(before, repository.getCurrencyVsNoOfRequest().get("CZK"));
+    }
 }
@@ -0,0 +1,127 @@
+package com.currency.exchange.repository;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the context polls the stub feed every 100ms, it must not outlive the stub server
+@SpringBootTest
+@DirtiesContext
+public class EcbRateFeedProviderTest {
+
+    private static final String FEED = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<gesmes:Envelope xmlns:gesmes=\"http://www.gesmes.org/xml/2002-08-01\" xmlns=\"http://www.ecb.int/vocabulary/2002-08-01/eurofxref\">\n"
+            + "  <gesmes:subject>Reference rates</gesmes:subject>\n"
+            + "  <Cube>\n"
+            + "    <Cube time='%s'>\n"
+            + "      <Cube currency='USD' rate='%s'/>\n"
+            + "      <Cube currency='HUF' rate='360.12'/>\n"
+            + "      <Cube currency='ZAR' rate='17.2718'/>\n"
+            + "    </Cube>\n"
+            + "  </Cube>\n"
+            + "</gesmes:Envelope>";
+
+    private static HttpServer server;
+    private static volatile int status = 200;
+    private static volatile String body = String.format(FEED, "2021-04-01", "1.1725");
+    private static final AtomicInteger notModified = new AtomicInteger();
+
+    @Autowired
+    private CurrencyExchangeRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void feed(DynamicPropertyRegistry registry) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/eurofxref/eurofxref-daily.xml", exchange -> {
+            String etag = "\"" + body.hashCode() + "\"";
+            if (status == 200 && etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        registry.add("exchange.feedUrl", () -> "http://localhost:" + server.getAddress().getPort() + "/eurofxref/");
+        registry.add("exchange.refreshInterval", () -> "100ms");
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testFeedIsPublishedAndLastGoodSnapshotSurvivesFailures() throws Exception {
+        await(() -> repository.getSnapshot().indexOf("ZAR") >= 0);
+        RateSnapshot published = repository.getSnapshot();
+        assertEquals(new BigDecimal("1.1725"), published.findByCurrency("USD").get().getExchangeRate());
+        assertEquals("United States", published.findByCurrency("USD").get().getCountry());
+        // currencies the feed doesn't quote are still served from the classpath rates
+        assertTrue(published.indexOf("JPY") >= 0);
+
+        int unchanged = notModified.get();
+        await(() -> notModified.get() > unchanged + 1);
+        assertEquals(published.getVersion(), repository.getSnapshot().getVersion());
+
+        status = 500;
+        double fetchFailures = failures("fetch");
+        await(() -> failures("fetch") > fetchFailures);
+
+        status = 200;
+        body = "<Cube><Cube time='2021-04-02'><Cube currency='USD' rate='-1'/></Cube></Cube>";
+        double validationFailures = failures("validation");
+        await(() -> failures("validation") > validationFailures);
+
+        body = "<Cube><Cube time=";
+        double parseFailures = failures("parse");
+        await(() -> failures("parse") > parseFailures);
+        assertEquals(published.getVersion(), repository.getSnapshot().getVersion());
+
+        body = String.format(FEED, "2021-04-02", "1.1761");
+        await(() -> repository.getSnapshot().getVersion() > published.getVersion());
+        assertEquals(new BigDecimal("1.1761"), repository.getSnapshot().findByCurrency("USD").get().getExchangeRate());
+        assertTrue(registry.get("currency.exchange.feed.fetch").timer().count() > 0);
+        assertTrue(registry.get("currency.exchange.feed.parse").timer().count() > 0);
+    }
+
+    private double failures(String stage) {
+        Counter counter = registry.find("currency.exchange.feed.failures").tag("stage", stage).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
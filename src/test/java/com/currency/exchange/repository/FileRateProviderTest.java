@@ -0,0 +1,69 @@
+package com.currency.exchange.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class FileRateProviderTest {
+
+    private static final String RATES = "[{\"currency\":\"USD\",\"exchangeRate\":%s,\"country\":\"United States\",\"description\":\"US dollar\"}]";
+
+    private static Path directory;
+    private static Path rateFile;
+
+    @Autowired
+    private CurrencyExchangeRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void rateFile(DynamicPropertyRegistry registry) throws IOException {
+        directory = Files.createTempDirectory("rates");
+        rateFile = directory.resolve("rates.json");
+        Files.writeString(rateFile, String.format(RATES, "1.5"));
+        registry.add("exchange.rateFile", rateFile::toString);
+    }
+
+    @AfterAll
+    static void cleanUp() throws IOException {
+        Files.deleteIfExists(rateFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testRateFileIsLoadedAndReloadedOnChange() throws Exception {
+        assertEquals(new BigDecimal("1.5"), repository.findByCurrency("USD").get().getExchangeRate());
+        long version = repository.getSnapshot().getVersion();
+        long reloads = registry.get("currency.exchange.rates.reload").timer().count();
+
+        Path staged = directory.resolve("rates.json.tmp");
+        Files.writeString(staged, String.format(RATES, "1.25"));
+        Files.move(staged, rateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        // the reload is timed after the snapshot is published, so waiting for the timer covers both
+        while (registry.get("currency.exchange.rates.reload").timer().count() == reloads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(registry.get("currency.exchange.rates.reload").timer().count() > reloads);
+        assertTrue(repository.getSnapshot().getVersion() > version);
+        assertEquals(new BigDecimal("1.25"), repository.findByCurrency("USD").get().getExchangeRate());
+        assertEquals(repository.getSnapshot().getVersion(),
+                (long) registry.get("currency.exchange.rates.snapshot.version").gauge().value());
+    }
+}
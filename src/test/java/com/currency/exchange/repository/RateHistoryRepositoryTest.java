@@ -0,0 +1,54 @@
+package com.currency.exchange.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class RateHistoryRepositoryTest {
+
+    @Autowired
+    private RateHistoryRepository repository;
+
+    @Test
+    public void testHistoryIsLoaded() {
+        RateHistory history = repository.getHistory();
+        assertEquals(10, history.getSeries().size());
+        RateSeries usd = history.getSeries("USD");
+        for (int i = 1; i < usd.size(); i++) {
+            assertTrue(usd.dayAt(i - 1) < usd.dayAt(i));
+        }
+    }
+
+    @Test
+    public void testFindRateAsOfBusinessDay() {
+        assertEquals(0, new BigDecimal("1.1851").compareTo(
+                repository.getHistory().findRateAsOf("USD", LocalDate.of(2021, 3, 5)).get()));
+    }
+
+    @Test
+    public void testFindRateAsOfWeekendUsesPreviousBusinessDay() {
+        assertEquals(repository.getHistory().findRateAsOf("HUF", LocalDate.of(2021, 3, 5)),
+                repository.getHistory().findRateAsOf("HUF", LocalDate.of(2021, 3, 7)));
+    }
+
+    @Test
+    public void testFindRateAsOfBeforeHistoryStarts() {
+        assertTrue(repository.getHistory().findRateAsOf("USD", LocalDate.of(2020, 12, 31)).isEmpty());
+        assertTrue(repository.getHistory().findRateAsOf("USD1", LocalDate.of(2021, 3, 5)).isEmpty());
+    }
+
+    @Test
+    public void testFindRateAsOfLongAfterHistoryEnds() {
+        // the last rate is of 2021-03-31 and stays valid for a week
+        assertTrue(repository.getHistory().findRateAsOf("USD", LocalDate.of(2021, 4, 7)).isPresent());
+        assertTrue(repository.getHistory().findRateAsOf("USD", LocalDate.of(2021, 4, 8)).isEmpty());
+        assertTrue(repository.getHistory().findRateAsOf("USD", LocalDate.of(2024, 1, 2)).isEmpty());
+    }
+}
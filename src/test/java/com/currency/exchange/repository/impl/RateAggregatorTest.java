@@ -0,0 +1,143 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.repository.ProvidedRates;
+import com.currency.exchange.repository.RateProvider;
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RateAggregatorTest {
+
+    private static final Instant MONDAY = Instant.parse("2021-04-05T14:00:00Z");
+    private static final Instant TUESDAY = Instant.parse("2021-04-06T14:00:00Z");
+
+    @Test
+    public void testFreshestValidRateWinsAndTiesGoToTheBetterRankedProvider() {
+        RateAggregator.ProviderRates feed = new RateAggregator.ProviderRates("ecb", new ProvidedRates(MONDAY, Arrays.asList(
+                rate("USD", "1.1725", null), rate("HUF", "360.12", null), rate("ZAR", "17.2718", null), rate("usd", "1", null))));
+        RateAggregator.ProviderRates file = new RateAggregator.ProviderRates("file", new ProvidedRates(TUESDAY, Arrays.asList(
+                rate("USD", "1.18", "United States"), rate("GBP", "-0.85", "United Kingdom"))));
+        RateAggregator.ProviderRates mirror = new RateAggregator.ProviderRates("mirror", new ProvidedRates(MONDAY, Collections.singletonList(
+                rate("HUF", "361", "Hungary"))));
+        RateAggregator.ProviderRates classpath = new RateAggregator.ProviderRates("classpath", new ProvidedRates(Instant.EPOCH, Arrays.asList(
+                rate("JPY", "129.91", "Japan"), rate("HUF", "355", "Hungary"), rate("USD", "1.1", "United States"))));
+        List<CurrencyExchangeDTO> current = Arrays.asList(rate("JPY", "129.91", "Japan"), rate("HUF", "355", "Hungary"));
+
+        RateAggregator.Selection selection = RateAggregator.select(Arrays.asList(feed, file, mirror, classpath), current);
+
+        assertEquals(Arrays.asList(
+                rate("JPY", "129.91", "Japan"),
+                rate("HUF", "360.12", "Hungary"),
+                rate("USD", "1.18", "United States"),
+                rate("ZAR", "17.2718", null)), selection.getRates());
+        assertEquals(2, selection.getRejected());
+        assertEquals(2, (int) selection.getSelectedByProvider().get("ecb"));
+        assertEquals(1, (int) selection.getSelectedByProvider().get("file"));
+        assertEquals(1, (int) selection.getSelectedByProvider().get("classpath"));
+    }
+
+    @Test
+    public void testStalledProviderFallsBackToItsLastGoodRates() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowFetches = new AtomicInteger();
+        RateProvider slow = provider("slow", () -> {
+            if (slowFetches.incrementAndGet() > 1) {
+                release.await();
+            }
+            return new ProvidedRates(TUESDAY, Collections.singletonList(rate("USD", "1.18", null)));
+        });
+        RateProvider failing = provider("failing", () -> {
+            throw new IOException("unreachable");
+        });
+        RateProvider fallback = provider("fallback", () -> new ProvidedRates(Instant.EPOCH, Arrays.asList(
+                rate("USD", "1.1", "United States"), rate("JPY", "129.91", "Japan"))));
+
+        CurrencyExchangeRepositoryImpl repository = new CurrencyExchangeRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        MeterRegistry registry = new SimpleMeterRegistry();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setProviderTimeout(Duration.ofMillis(200));
+        RateAggregator aggregator = new RateAggregator(Arrays.asList(slow, failing, fallback), repository, properties,
+                new CurrencyExchangeMetrics(registry, repository));
+        try {
+            aggregator.start();
+            RateSnapshot published = repository.getSnapshot();
+            assertEquals(new BigDecimal("1.18"), published.findByCurrency("USD").get().getExchangeRate());
+            assertEquals("United States", published.findByCurrency("USD").get().getCountry());
+            assertEquals(1, registry.get("currency.exchange.provider.fetch").tag("provider", "failing").tag("outcome", "failure").timer().count());
+
+            assertNull(aggregator.refresh());
+            assertNull(aggregator.refresh());
+            assertEquals(published.getVersion(), repository.getSnapshot().getVersion());
+            assertEquals(new BigDecimal("1.18"), repository.getSnapshot().findByCurrency("USD").get().getExchangeRate());
+            assertEquals(2, registry.get("currency.exchange.provider.fetch").tag("provider", "slow").tag("outcome", "timeout").timer().count());
+            // the second refresh joined the stalled fetch instead of starting another one
+            assertEquals(2, slowFetches.get());
+            assertEquals(1.0, registry.get("currency.exchange.provider.selected").tag("provider", "slow").gauge().value());
+            assertEquals(1.0, registry.get("currency.exchange.provider.selected").tag("provider", "fallback").gauge().value());
+        } finally {
+            release.countDown();
+            aggregator.stop();
+        }
+
+        RateAggregator empty = new RateAggregator(Collections.singletonList(failing), repository, properties,
+                new CurrencyExchangeMetrics(registry, repository));
+        try {
+            empty.start();
+            assertEquals(1.0, registry.get("currency.exchange.rates.reload.failures").counter().count());
+        } finally {
+            empty.stop();
+        }
+    }
+
+    private static CurrencyExchangeDTO rate(String currency, String rate, String country) {
+        return new CurrencyExchangeDTO(currency, new BigDecimal(rate), country, null);
+    }
+
+    private static RateProvider provider(String name, Fetch fetch) {
+        return new RateProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            @Override
+            public ProvidedRates fetch() throws IOException {
+                try {
+                    return fetch.fetch();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    private interface Fetch {
+        ProvidedRates fetch() throws IOException, InterruptedException;
+    }
+}
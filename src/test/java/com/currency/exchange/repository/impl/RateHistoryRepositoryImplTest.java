@@ -0,0 +1,40 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.service.bo.ApplicationProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateHistoryRepositoryImplTest {
+
+    @Test
+    public void testMalformedHistoryIsRejectedWithItsLine() {
+        for (String row : new String[]{"2021-02-30,1.1851,366.83", "2021-03-05,1.18x1,366.83", "2021-03-05,1e400,366.83", ",,,",
+                "2021-03-05,0,366.83", "2021-03-05,-1.2,366.83", "2021-03-05,1.1851,0.0000001"}) {
+            ByteArrayInputStream in = new ByteArrayInputStream(("Date,USD,HUF,\n2021-03-04,1.1852,366.80\n" + row + "\n").getBytes(StandardCharsets.UTF_8));
+            IOException e = assertThrows(IOException.class, () -> RateHistoryRepositoryImpl.parse(in), row);
+            assertTrue(e.getMessage().startsWith("Malformed rate history line 3"), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testMalformedHistoryFileDoesNotStopTheService(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("eurofxref-hist.csv");
+        Files.write(file, "Date,USD,\nyesterday,1.1851\n".getBytes(StandardCharsets.UTF_8));
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setHistoryFile(file.toString());
+
+        RateHistoryRepositoryImpl repository = new RateHistoryRepositoryImpl(properties);
+        repository.loadHistory();
+
+        assertTrue(repository.getHistory().getSeries().isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package com.currency.exchange.repository.impl;
+
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RateStoreTest {
+
+    private static final Instant AS_OF = Instant.parse("2021-03-31T14:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testStoreReadsBackTheSnapshotAndHistoryInPlace() throws IOException {
+        List<CurrencyExchangeDTO> rates = classpathRates();
+        RateHistory history = classpathHistory();
+        Path file = directory.resolve("rates.store");
+        RateStore.write(file, AS_OF, rates, history);
+
+        RateStore store = RateStore.open(file);
+        assertEquals(AS_OF, store.getAsOf());
+        assertEquals(rates.size(), store.getSnapshot().size());
+        for (int i = 0; i < rates.size(); i++) {
+            CurrencyExchangeDTO expected = rates.get(i);
+            CurrencyExchangeDTO actual = store.getSnapshot().get(i);
+            assertEquals(expected.getCurrency(), actual.getCurrency());
+            assertEquals(0, expected.getExchangeRate().compareTo(actual.getExchangeRate()));
+            assertEquals(expected.getCountry(), actual.getCountry());
+            assertEquals(expected.getDescription(), actual.getDescription());
+        }
+
+        assertEquals(history.getSeries().keySet(), store.getHistory().getSeries().keySet());
+        for (Map.Entry<String, RateSeries> each : history.getSeries().entrySet()) {
+            RateSeries expected = each.getValue();
+            RateSeries mapped = store.getHistory().getSeries(each.getKey());
+            assertTrue(mapped instanceof MappedRateSeries);
+            assertEquals(expected.size(), mapped.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.dayAt(i), mapped.dayAt(i));
+                assertEquals(expected.rateAt(i), mapped.rateAt(i));
+            }
+        }
+        assertEquals(history.findRateAsOf("HUF", LocalDate.of(2021, 3, 7)), store.getHistory().findRateAsOf("HUF", LocalDate.of(2021, 3, 7)));
+    }
+
+    @Test
+    public void testHistoryRepositoryMapsTheConfiguredStore() throws IOException {
+        Path file = directory.resolve("rates.store");
+        RateStore.write(file, AS_OF, classpathRates(), classpathHistory());
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setRateStore(file.toString());
+
+        RateHistoryRepositoryImpl repository = new RateHistoryRepositoryImpl(properties);
+        repository.loadHistory();
+
+        assertTrue(repository.getHistory().getSeries("USD") instanceof MappedRateSeries);
+        assertEquals(0, new BigDecimal("1.1851").compareTo(repository.getHistory().findRateAsOf("USD", LocalDate.of(2021, 3, 5)).get()));
+    }
+
+    @Test
+    public void testUnsupportedOrDamagedStoresAreRejected() throws IOException {
+        Path file = directory.resolve("rates.store");
+        RateStore.write(file, AS_OF, classpathRates(), classpathHistory());
+        byte[] valid = Files.readAllBytes(file);
+
+        byte[] newerMajor = valid.clone();
+        ByteBuffer.wrap(newerMajor).order(ByteOrder.LITTLE_ENDIAN).putShort(4, (short) (RateStore.MAJOR_VERSION + 1));
+        Files.write(file, newerMajor);
+        assertTrue(assertThrows(IOException.class, () -> RateStore.open(file)).getMessage().contains("version"));
+
+        byte[] newerMinor = valid.clone();
+        ByteBuffer.wrap(newerMinor).order(ByteOrder.LITTLE_ENDIAN).putShort(6, (short) (RateStore.MINOR_VERSION + 1));
+        Files.write(file, newerMinor);
+        assertEquals(AS_OF, RateStore.open(file).getAsOf());
+
+        Files.write(file, Arrays.copyOf(valid, valid.length / 2));
+        assertThrows(IOException.class, () -> RateStore.open(file));
+
+        Files.write(file, "[{\"currency\":\"USD\"}]".getBytes());
+        assertThrows(IOException.class, () -> RateStore.open(file));
+    }
+
+    @Test
+    public void testHistoriesBreakingTheFormatAreRejected() throws IOException {
+        Path file = directory.resolve("rates.store");
+        int day = (int) LocalDate.of(2021, 3, 5).toEpochDay();
+        RateSeries zeroRate = new ArrayRateSeries.Builder().add(day - 1, 1_185_100).add(day, 0).build();
+        assertThrows(IllegalArgumentException.class, () -> RateStore.write(file, AS_OF, classpathRates(),
+                new RateHistory(Map.of("USD", zeroRate))));
+        RateSeries unordered = new RateSeries() {
+            @Override
+            public int size() {
+                return 2;
+            }
+
+            @Override
+            public int dayAt(int index) {
+                return day - index;
+            }
+
+            @Override
+            public long rateAt(int index) {
+                return 1_185_100;
+            }
+        };
+        assertThrows(IllegalArgumentException.class, () -> RateStore.write(file, AS_OF, classpathRates(),
+                new RateHistory(Map.of("USD", unordered))));
+
+        RateStore.write(file, AS_OF, classpathRates(), classpathHistory());
+        byte[] valid = Files.readAllBytes(file);
+        ByteBuffer header = ByteBuffer.wrap(valid).order(ByteOrder.LITTLE_ENDIAN);
+        int entry = header.getInt(28);
+        int daysOffset = header.getInt(entry + 4);
+        int ratesOffset = header.getInt(entry + 8);
+
+        byte[] zeroStored = valid.clone();
+        ByteBuffer.wrap(zeroStored).order(ByteOrder.LITTLE_ENDIAN).putLong(ratesOffset + Long.BYTES, 0);
+        Files.write(file, zeroStored);
+        assertTrue(assertThrows(IOException.class, () -> RateStore.open(file)).getMessage().contains("corrupt"));
+
+        byte[] unorderedStored = valid.clone();
+        ByteBuffer days = ByteBuffer.wrap(unorderedStored).order(ByteOrder.LITTLE_ENDIAN);
+        days.putInt(daysOffset, days.getInt(daysOffset + Integer.BYTES) + 1);
+        Files.write(file, unorderedStored);
+        assertTrue(assertThrows(IOException.class, () -> RateStore.open(file)).getMessage().contains("corrupt"));
+    }
+
+    private static List<CurrencyExchangeDTO> classpathRates() throws IOException {
+        try (InputStream in = new ClassPathResource("json/currencyexchange.json").getInputStream()) {
+            return Arrays.asList(new ObjectMapper().readValue(in, CurrencyExchangeDTO[].class));
+        }
+    }
+
+    private static RateHistory classpathHistory() throws IOException {
+        try (InputStream in = new ClassPathResource(RateHistoryRepositoryImpl.CLASSPATH_HISTORY).getInputStream()) {
+            return RateHistoryRepositoryImpl.parse(in);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.currency.exchange.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"exchange.client-rate-limit=0.001", "exchange.client-burst=2", "exchange.max-concurrent-requests=8"})
+@AutoConfigureMetrics
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AdmissionInterceptorTest {
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @BeforeAll
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context).build();
+    }
+
+    @Test
+    public void clientsOverTheirLimitAreRejectedWithProblemJson() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF").header("X-Client-Id", "batch"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF").header("X-Client-Id", "batch"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Content-Type", "application/problem+json"))
+                .andExpect(header().string("Retry-After", "1000"))
+                .andExpect(jsonPath("$.status").value(429))
+                .andExpect(jsonPath("$.detail").value("Rate limit exceeded for client batch"));
+
+        // other clients and the actuator are not affected
+        mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF").header("X-Client-Id", "web"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/health").header("X-Client-Id", "batch"))
+                .andExpect(status().isOk());
+
+        assertThat(registry.get("currency.exchange.admission.rejected").tag("reason", "rate-limit").counter().count()).isEqualTo(1);
+        assertThat(registry.get("currency.exchange.admission.limit").gauge().value()).isEqualTo(8);
+        assertThat(registry.get("currency.exchange.admission.inflight").gauge().value()).isZero();
+    }
+}
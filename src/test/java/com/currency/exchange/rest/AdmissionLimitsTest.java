@@ -0,0 +1,82 @@
+package com.currency.exchange.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionLimitsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    public void testClientsGetTheirBurstThenTheirRate() {
+        ClientRateLimiter limiter = new ClientRateLimiter(2, 3, clock::get);
+
+        assertEquals(0, limiter.tryAcquire("batch"));
+        assertEquals(0, limiter.tryAcquire("batch"));
+        assertEquals(0, limiter.tryAcquire("batch"));
+        assertEquals(SECOND / 2, limiter.tryAcquire("batch"));
+        // other clients have their own bucket
+        assertEquals(0, limiter.tryAcquire("web"));
+
+        clock.addAndGet(SECOND / 2);
+        assertEquals(0, limiter.tryAcquire("batch"));
+        assertEquals(SECOND / 2, limiter.tryAcquire("batch"));
+
+        // an idle client refills up to its burst, not beyond
+        clock.addAndGet(10 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("batch"));
+        }
+        assertTrue(limiter.tryAcquire("batch") > 0);
+    }
+
+    @Test
+    public void testConcurrencyLimitShrinksWhenSlowAndRecovers() {
+        long target = TimeUnit.MILLISECONDS.toNanos(100);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, target, clock::get);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        assertFalse(limit.tryAcquire());
+        assertEquals(20, limit.getInFlight());
+
+        // slow completions lower the limit once per target latency
+        limit.release(2 * target);
+        limit.release(2 * target);
+        assertEquals(18, limit.getLimit());
+        clock.addAndGet(target);
+        limit.release(2 * target);
+        assertEquals(17, limit.getLimit());
+        assertEquals(17, limit.getInFlight());
+        assertFalse(limit.tryAcquire());
+
+        // fast completions at the limit raise it again, up to the maximum
+        for (int i = 0; i < 3; i++) {
+            limit.release(target / 2);
+            assertTrue(limit.tryAcquire());
+            assertTrue(limit.tryAcquire());
+        }
+        assertEquals(20, limit.getLimit());
+        assertEquals(20, limit.getInFlight());
+        limit.release(target / 2);
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    public void testConcurrencyLimitWithoutTargetIsFixed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 0, clock::get);
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release(TimeUnit.HOURS.toNanos(1));
+        assertEquals(1, limit.getLimit());
+        assertTrue(limit.tryAcquire());
+    }
+}
@@ -1,15 +1,24 @@
 package com.currency.exchange.rest;
 
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.RateSnapshot;
 import com.currency.exchange.service.bo.CurrencyConversion;
+import com.currency.exchange.service.bo.CurrencyConversionColumns;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
 import com.currency.exchange.service.bo.CurrencySupport;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.currency.exchange.service.bo.CurrencyExchange;
+import com.currency.exchange.service.bo.CurrencyRateSeries;
+import com.currency.exchange.service.bo.PortfolioValuation;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -17,6 +26,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -24,10 +34,14 @@ import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
+@AutoConfigureMetrics
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class CurrencyExchangeResourceTest {
 
@@ -39,6 +53,15 @@ public class CurrencyExchangeResourceTest {
     @Autowired
     private ObjectMapper mapper;
 
+    @Autowired
+    private CurrencyExchangeRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
     @BeforeAll
     public void setup() {
         this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context).build();
@@ -61,7 +84,78 @@ public class CurrencyExchangeResourceTest {
         assertThat(exchange).isNotNull();
         assertThat(exchange).extracting("fromCurrency").isEqualTo("USD");
         assertThat(exchange).extracting("toCurrency").isEqualTo("HUF");
-        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal(309.24).setScale(2, RoundingMode.HALF_UP));
+        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal("309.30"));
+    }
+
+    @Test
+    public void getExchangeRateToOtherCurrencyPairsAsOfDate() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF").param("date", "2021-03-06"))
+                .andExpect(status().isOk()).andReturn();
+
+        CurrencyExchange exchange = mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyExchange.class);
+        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal("308.36"));
+    }
+
+    @Test
+    public void getWeeklyExchangeRateSeries() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/exchange/history/from/USD/to/HUF")
+                .param("start", "2021-03-01").param("end", "2021-03-09").param("interval", "weekly"))
+                .andExpect(status().isOk()).andReturn();
+
+        CurrencyRateSeries series = mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyRateSeries.class);
+        assertThat(series.getPoints()).hasSize(2);
+        assertThat(series.getPoints().get(0).getDate()).isEqualTo(LocalDate.of(2021, 3, 5));
+        assertThat(series.getPoints().get(0).getExchangeRate()).isEqualTo(new BigDecimal("308.362164"));
+        assertThat(series.getPoints().get(1).getDate()).isEqualTo(LocalDate.of(2021, 3, 9));
+        assertThat(series.getAggregates().getCount()).isEqualTo(7);
+        assertThat(series.getAggregates().getMin()).isLessThanOrEqualTo(series.getAggregates().getMean());
+        assertThat(series.getAggregates().getMax()).isGreaterThanOrEqualTo(series.getAggregates().getMean());
+    }
+
+    @Test
+    public void getExchangeRateSeriesOfEuro() throws Exception {
+        MvcResult fromEuro = mockMvc.perform(get("/exchange/history/from/EUR/to/USD")
+                .param("start", "2021-03-01").param("end", "2021-03-09"))
+                .andExpect(status().isOk()).andReturn();
+        CurrencyRateSeries series = mapper.readValue(fromEuro.getResponse().getContentAsString(), CurrencyRateSeries.class);
+        assertThat(series.getPoints()).hasSize(7);
+        assertThat(series.getPoints().get(4).getDate()).isEqualTo(LocalDate.of(2021, 3, 5));
+        assertThat(series.getPoints().get(4).getExchangeRate()).isEqualTo(new BigDecimal("1.185100"));
+
+        MvcResult toEuro = mockMvc.perform(get("/exchange/history/from/USD/to/EUR")
+                .param("start", "2021-03-05").param("end", "2021-03-05"))
+                .andExpect(status().isOk()).andReturn();
+        series = mapper.readValue(toEuro.getResponse().getContentAsString(), CurrencyRateSeries.class);
+        assertThat(series.getPoints().get(0).getExchangeRate()).isEqualTo(new BigDecimal("0.843811"));
+
+        MvcResult euro = mockMvc.perform(get("/exchange/history/from/EUR/to/EUR")
+                .param("start", "2021-03-01").param("end", "2021-03-09"))
+                .andExpect(status().isOk()).andReturn();
+        series = mapper.readValue(euro.getResponse().getContentAsString(), CurrencyRateSeries.class);
+        assertThat(series.getAggregates().getCount()).isEqualTo(7);
+        assertThat(series.getAggregates().getMin()).isEqualTo(new BigDecimal("1.000000"));
+        assertThat(series.getAggregates().getMax()).isEqualTo(new BigDecimal("1.000000"));
+        assertThat(series.getAggregates().getVolatility()).isEqualByComparingTo(BigDecimal.ZERO);
+
+        mockMvc.perform(get("/exchange/history/from/EUR/to/XXX"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("No rate history found for XXX"));
+    }
+
+    @Test
+    public void getExchangeRateSeriesWithInvalidRange() throws Exception {
+        mockMvc.perform(get("/exchange/history/from/USD/to/HUF").param("start", "2021-03-09").param("end", "2021-03-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/exchange/history/from/USD/to/HUF").param("interval", "hourly"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/exchange/history/from/USD/to/XXX"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getCurrencyConversionBeforeHistoryStarts() throws Exception {
+        mockMvc.perform(get("/exchange/conversion/from/USD/to/HUF/quantity/15").param("date", "2020-01-01"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -73,11 +167,162 @@ public class CurrencyExchangeResourceTest {
         assertThat(exchange).isNotNull();
         assertThat(exchange).extracting("from").isEqualTo("USD");
         assertThat(exchange).extracting("to").isEqualTo("HUF");
-        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal(309.24).setScale(2, RoundingMode.HALF_UP));
-        assertThat(exchange).extracting("calculateAmount").isEqualTo(new BigDecimal(4638.60).setScale(2, RoundingMode.HALF_UP));
+        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal("309.30"));
+        assertThat(exchange).extracting("calculateAmount").isEqualTo(new BigDecimal("4639.50"));
         assertThat(exchange).extracting("quantity").isEqualTo(new BigDecimal(15));
     }
 
+    @Test
+    public void getCurrencyConversionIntoAndOutOfEuro() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/exchange/conversion/from/USD/to/EUR/quantity/10"))
+                .andExpect(status().isOk()).andReturn();
+        CurrencyConversion conversion = mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyConversion.class);
+        assertThat(conversion.getExchangeRate()).isEqualTo(new BigDecimal("0.84"));
+        assertThat(conversion.getCalculateAmount()).isEqualTo(new BigDecimal("8.43"));
+
+        mockMvc.perform(get("/currency/exchange/rate/from/EUR/to/EUR"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(
+                        "{\"fromCurrency\":\"EUR\",\"toCurrency\":\"EUR\",\"fromCountry\":\"Europe\",\"toCountry\":\"Europe\",\"exchangeRate\":1.000}"));
+    }
+
+    @Test
+    public void getPortfolioValuation() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/portfolio/valuation/to/HUF").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"currency\":\"USD\",\"amount\":10},{\"currency\":\"HUF\",\"amount\":1000},"
+                        + "{\"currency\":\"USD\",\"amount\":5},{\"currency\":\"EUR\",\"amount\":2}]"))
+                .andExpect(status().isOk()).andReturn();
+
+        PortfolioValuation valuation = mapper.readValue(mvcResult.getResponse().getContentAsString(), PortfolioValuation.class);
+        assertThat(valuation.getPositions()).isEqualTo(4);
+        assertThat(valuation.getSubtotals()).extracting("currency").containsExactly("USD", "HUF", "EUR");
+        assertThat(valuation.getSubtotals().get(0).getPositions()).isEqualTo(2);
+        assertThat(valuation.getSubtotals().get(0).getValue()).isEqualTo(new BigDecimal("4639.50"));
+        assertThat(valuation.getSubtotals().get(1).getValue()).isEqualTo(new BigDecimal("1000.00"));
+        assertThat(valuation.getSubtotals().get(2).getValue()).isEqualTo(new BigDecimal("733.66"));
+        assertThat(valuation.getTotal()).isEqualTo(new BigDecimal("6373.16"));
+
+        mockMvc.perform(post("/exchange/portfolio/valuation/to/HUF").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"currency\":\"USD\",\"amount\":10},{\"currency\":\"XXX\",\"amount\":1}]"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("No currency found for XXX"));
+        mockMvc.perform(post("/exchange/portfolio/valuation/to/HUF").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"currency\":\"USD\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getCurrencyConversionsForBatch() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/conversion/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15},{\"from\":\"USD\",\"to\":\"XXX\",\"quantity\":1},{\"from\":\"\",\"to\":\"HUF\",\"quantity\":1}]"))
+                .andExpect(status().isOk()).andReturn();
+
+        List<CurrencyConversionResult> results = Arrays.asList(mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyConversionResult[].class));
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).extracting("calculateAmount").isEqualTo(new BigDecimal("4639.50"));
+        assertThat(results.get(0)).extracting("error").isNull();
+        assertThat(results.get(1)).extracting("status").isEqualTo(404);
+        assertThat(results.get(1)).extracting("error").isEqualTo("No currency found for XXX");
+        assertThat(results.get(2)).extracting("status").isEqualTo(400);
+    }
+
+    @Test
+    public void getCurrencyConversionsForBatchWithNullOrTooManyItems() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/conversion/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":1},null]"))
+                .andExpect(status().isOk()).andReturn();
+        List<CurrencyConversionResult> results = Arrays.asList(mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyConversionResult[].class));
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0)).extracting("calculateAmount").isEqualTo(new BigDecimal("309.30"));
+        assertThat(results.get(1)).extracting("status").isEqualTo(400);
+
+        String tooMany = Stream.generate(() -> "{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":1}").limit(10_001)
+                .collect(Collectors.joining(",", "[", "]"));
+        mockMvc.perform(post("/exchange/conversion/batch").contentType(MediaType.APPLICATION_JSON).content(tooMany))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("The given batch of 10001 conversions exceeds the limit of 10000, use the conversion stream for more"));
+    }
+
+    @Test
+    public void getCurrencyConversionIsNegotiatedAsCbor() throws Exception {
+        ObjectMapper cbor = cborConverter.getObjectMapper();
+        MvcResult json = mockMvc.perform(get("/exchange/conversion/from/USD/to/HUF/quantity/15"))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult binary = mockMvc.perform(get("/exchange/conversion/from/USD/to/HUF/quantity/15")
+                .header("Accept", "application/json;q=0.5, application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", "Accept")).andReturn();
+
+        assertThat(cbor.readValue(binary.getResponse().getContentAsByteArray(), CurrencyConversion.class))
+                .isEqualTo(mapper.readValue(json.getResponse().getContentAsString(), CurrencyConversion.class));
+        assertThat(binary.getResponse().getContentAsByteArray().length).isLessThan(json.getResponse().getContentAsByteArray().length);
+        assertThat(binary.getResponse().getHeader("ETag")).isNotEqualTo(json.getResponse().getHeader("ETag"));
+
+        mockMvc.perform(get("/exchange/conversion/from/USD/to/HUF/quantity/15").header("Accept", "application/cbor")
+                .header("If-None-Match", binary.getResponse().getHeader("ETag")))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF").header("Accept", "*/*"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void getCurrencyConversionsForCborBatch() throws Exception {
+        ObjectMapper cbor = cborConverter.getObjectMapper();
+        byte[] requests = cbor.writeValueAsBytes(mapper.readTree(
+                "[{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15},{\"from\":\"USD\",\"to\":\"XXX\",\"quantity\":1}]"));
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/conversion/batch").contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR).content(requests))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR)).andReturn();
+
+        List<CurrencyConversionResult> results = Arrays.asList(cbor.readValue(mvcResult.getResponse().getContentAsByteArray(), CurrencyConversionResult[].class));
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getCalculateAmount()).isEqualTo(new BigDecimal("4639.50"));
+        assertThat(results.get(1).getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    public void getCurrencyConversionsForQuantities() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/conversion/from/USD/to/HUF/quantities").contentType(MediaType.APPLICATION_JSON)
+                .content("[15, 1, 0.5]"))
+                .andExpect(status().isOk()).andReturn();
+
+        CurrencyConversionColumns columns = mapper.readValue(mvcResult.getResponse().getContentAsString(), CurrencyConversionColumns.class);
+        assertThat(columns.getExchangeRate()).isEqualTo(new BigDecimal("309.30"));
+        assertThat(columns.getCalculateAmounts()).containsExactly(new BigDecimal("4639.50"), new BigDecimal("309.30"), new BigDecimal("154.65"));
+    }
+
+    @Test
+    public void getCurrencyConversionsForQuantitiesWithUnknownCurrency() throws Exception {
+        mockMvc.perform(post("/exchange/conversion/from/USD/to/XXX/quantities").contentType(MediaType.APPLICATION_JSON)
+                .content("[15]"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getCurrencyConversionsForNdjsonStream() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(post("/exchange/conversion/stream").contentType("application/x-ndjson")
+                .content("{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15}\n\n{\"from\":\"USD\",\"to\":\"XXX\",\"quantity\":1}\nnot json\n"))
+                .andExpect(status().isOk()).andReturn();
+
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(mapper.readValue(lines[0], CurrencyConversionResult.class)).extracting("calculateAmount").isEqualTo(new BigDecimal("4639.50"));
+        assertThat(mapper.readValue(lines[1], CurrencyConversionResult.class)).extracting("status").isEqualTo(404);
+        assertThat(mapper.readValue(lines[2], CurrencyConversionResult.class)).extracting("status").isEqualTo(400);
+    }
+
+    @Test
+    public void getCurrencyConversionsForCsvStream() throws Exception {
+        mockMvc.perform(post("/exchange/conversion/stream").contentType("text/csv")
+                .content("from,to,quantity\nUSD,HUF,15\nUSD,XXX,1\n"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("from,to,quantity,exchangeRate,calculateAmount,error\n"
+                        + "USD,HUF,15,309.30,4639.50,\n"
+                        + "USD,XXX,1,,,\"No currency found for XXX\"\n"));
+    }
+
     @Test
     public void getSupportedCurrencies() throws Exception {
         MvcResult mvcResult = mockMvc.perform(get("/currency/exchange/supported/currencies").contentType(MediaType.APPLICATION_JSON))
@@ -88,6 +333,67 @@ public class CurrencyExchangeResourceTest {
         assertThat(currencySupport).extracting("currency").isEqualTo(Stream.of("AUD","SGD","JPY","GBP","CZK","USD","CAD","HUF","NZD","INR").collect(Collectors.toList()));
     }
 
+    @Test
+    public void getExchangeRateRevalidatesAgainstTheSnapshot() throws Exception {
+        MvcResult first = mockMvc.perform(get("/currency/exchange/rate/from/GBP/to/CAD"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=0, must-revalidate, public"))
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertThat(etag).isNotNull();
+        RateSnapshot snapshot = repository.getSnapshot();
+        long requests = snapshot.getNoOfRequests(snapshot.indexOf("GBP"));
+
+        mockMvc.perform(get("/currency/exchange/rate/from/GBP/to/CAD").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/currency/exchange/rate/from/GBP/to/CAD"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(first.getResponse().getContentAsString()));
+        // cached and not modified responses are counted like computed ones
+        assertThat(snapshot.getNoOfRequests(snapshot.indexOf("GBP"))).isEqualTo(requests + 2);
+
+        String supportedEtag = mockMvc.perform(get("/currency/exchange/supported/currencies"))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/currency/exchange/supported/currencies").header("If-None-Match", supportedEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/currency/exchange/rate/from/GBP/to/EUR").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/currency/exchange/supported/currencies").header("If-None-Match", supportedEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void getCurrencyConversionIsServedFromTheResponseCache() throws Exception {
+        String path = "/exchange/conversion/from/NZD/to/SGD/quantity/42.5";
+        String body = mockMvc.perform(get(path)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        double hits = registry.get("cache.gets").tag("cache", "currency.exchange.responses").tag("result", "hit").functionCounter().count();
+
+        mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(body));
+
+        assertThat(registry.get("cache.gets").tag("cache", "currency.exchange.responses").tag("result", "hit").functionCounter().count())
+                .isEqualTo(hits + 1);
+        assertThat(registry.find("cache.evictions").tag("cache", "currency.exchange.responses").functionCounter()).isNotNull();
+    }
+
+    @Test
+    public void getPrometheusMetrics() throws Exception {
+        mockMvc.perform(get("/currency/exchange/rate/from/USD/to/HUF")).andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertThat(metrics).contains("currency_exchange_pair_requests_total{from=\"USD\",to=\"HUF\",}");
+        assertThat(metrics).contains("currency_exchange_currency_requests_total{currency=\"HUF\",}");
+        assertThat(metrics).contains("currency_exchange_crossrates_lookups_total{result=\"hit\",}");
+        assertThat(metrics).contains("currency_exchange_rates_snapshot_age_seconds");
+        assertThat(metrics).contains("currency_exchange_rates_snapshot_version");
+    }
+
     @Test
     public void getCurrencyPairChart() throws Exception {
         mockMvc.perform(get("/exchange/linkTo/EUR-USD"))
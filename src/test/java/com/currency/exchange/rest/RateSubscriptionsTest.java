@@ -0,0 +1,107 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "exchange.subscriber-buffer-size=8")
+@AutoConfigureMetrics
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RateSubscriptionsTest {
+
+    private static final String EVENT = "event:" + RateSubscriptions.EVENT_NAME;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private CurrencyExchangeRepository repository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @BeforeAll
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.context).build();
+    }
+
+    @Test
+    public void subscribersReceiveTheCurrentRatesThenOnlyTheirChanges() throws Exception {
+        MvcResult result = mockMvc.perform(get("/currency/exchange/rates/subscribe").param("pairs", "USD-HUF,USD-EUR,USD-HUF")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse response = result.getResponse();
+        awaitEvents(response, 2);
+        assertThat(response.getContentAsString()).contains("\"fromCurrency\":\"USD\",\"toCurrency\":\"HUF\"")
+                .contains("\"fromCurrency\":\"USD\",\"toCurrency\":\"EUR\"");
+
+        // unchanged rates aren't pushed again
+        repository.publish(repository.findAll());
+        List<CurrencyExchangeDTO> hufChanged = repository.findAll().stream()
+                .map(rate -> "HUF".equals(rate.getCurrency())
+                        ? new CurrencyExchangeDTO(rate.getCurrency(), new BigDecimal("400.00"), rate.getCountry(), rate.getDescription())
+                        : rate)
+                .collect(Collectors.toList());
+        repository.publish(hufChanged);
+
+        awaitEvents(response, 3);
+        String content = response.getContentAsString();
+        assertThat(content.substring(content.lastIndexOf(EVENT))).contains("\"toCurrency\":\"HUF\"").contains("\"exchangeRate\":337.27");
+        assertThat(registry.get("currency.exchange.subscriptions").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("currency.exchange.subscriptions.pairs").gauge().value()).isEqualTo(2);
+        assertThat(registry.get("currency.exchange.subscriptions.fanout").timer().count()).isEqualTo(3);
+        assertThat(registry.get("currency.exchange.subscriptions.dropped").counter().count()).isZero();
+        Thread.sleep(100);
+        assertThat(count(response.getContentAsString())).isEqualTo(3);
+    }
+
+    @Test
+    public void subscriptionsToUnknownOrMalformedPairsAreRejected() throws Exception {
+        mockMvc.perform(get("/currency/exchange/rates/subscribe").param("pairs", "USD-HUF,USD-XXX"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.detail").value("No currency found for XXX"));
+        mockMvc.perform(get("/currency/exchange/rates/subscribe").param("pairs", "USDHUF"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static void awaitEvents(MockHttpServletResponse response, int events) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (count(response.getContentAsString()) < events && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(count(response.getContentAsString())).isEqualTo(events);
+    }
+
+    private static int count(String content) {
+        int count = 0;
+        for (int at = content.indexOf(EVENT); at >= 0; at = content.indexOf(EVENT, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
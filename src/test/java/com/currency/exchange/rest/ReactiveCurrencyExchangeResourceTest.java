@@ -0,0 +1,89 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveCurrencyExchangeResourceTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    public void runsOnNettyWithoutTheServletResource() {
+        assertThat(context.getBeansOfType(NettyReactiveWebServerFactory.class)).hasSize(1);
+        assertThat(context.getBeansOfType(CurrencyExchangeResource.class)).isEmpty();
+    }
+
+    @Test
+    public void getExchangeRateToOtherCurrencyPairs() {
+        CurrencyExchange exchange = client.get().uri("/currency/exchange/rate/from/USD/to/HUF").exchange()
+                .expectStatus().isOk()
+                .expectBody(CurrencyExchange.class).returnResult().getResponseBody();
+
+        assertThat(exchange).extracting("exchangeRate").isEqualTo(new BigDecimal("309.30"));
+    }
+
+    @Test
+    public void getExchangeRateForUnknownCurrency() {
+        client.get().uri("/currency/exchange/rate/from/USD/to/XXX").exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType("application/problem+json")
+                .expectBody().jsonPath("$.detail").isEqualTo("No currency found for XXX");
+    }
+
+    @Test
+    public void getCurrencyConversionsForBatch() {
+        List<CurrencyConversionResult> results = client.post().uri("/exchange/conversion/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15},{\"from\":\"USD\",\"to\":\"XXX\",\"quantity\":1}]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CurrencyConversionResult.class).returnResult().getResponseBody();
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0)).extracting("calculateAmount").isEqualTo(new BigDecimal("4639.50"));
+        assertThat(results.get(1)).extracting("status").isEqualTo(404);
+    }
+
+    @Test
+    public void getCurrencyConversionsForCsvStream() {
+        client.post().uri("/exchange/conversion/stream").contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("from,to,quantity\nUSD,HUF,15\n\nUSD,XXX,1\nbroken\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType("text/csv"))
+                .expectBody(String.class).isEqualTo("from,to,quantity,exchangeRate,calculateAmount,error\n"
+                        + "USD,HUF,15,309.30,4639.50,\n"
+                        + "USD,XXX,1,,,\"No currency found for XXX\"\n"
+                        + ",,,,,\"Malformed line 3\"\n");
+    }
+
+    @Test
+    public void getCurrencyConversionsForNdjsonStream() {
+        String body = client.post().uri("/exchange/conversion/stream").contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .bodyValue("{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15}\nnot json\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(body).isEqualTo("{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":15,\"exchangeRate\":309.30,\"calculateAmount\":4639.50}\n"
+                + "{\"status\":400,\"error\":\"Malformed line 2\"}\n");
+    }
+}
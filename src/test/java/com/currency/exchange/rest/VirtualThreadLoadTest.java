@@ -0,0 +1,154 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.CurrencyExchangeApplication;
+import com.currency.exchange.exception.CurrencyNotFoundException;
+import com.currency.exchange.exception.InvalidCurrencyException;
+import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load comparison of the servlet stack with and without {@code exchange.virtual-threads}. Requests
+ * go to a pair-rate endpoint that first blocks for {@code load.downstreamMillis}, standing in for
+ * a slow downstream rate fetch, so the platform pool caps the requests served concurrently.
+ * Virtual threads only take effect on Java 21+, run it with
+ * {@code mvn -Pload-test test -Dload.jvm=/path/to/jdk21/bin/java}.
+ */
+@Tag("load")
+public class VirtualThreadLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 20_000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 1_000);
+    private static final long DOWNSTREAM_MILLIS = Long.getLong("load.downstreamMillis", 50);
+
+    @Test
+    public void compareWithAndWithoutVirtualThreads() throws Exception {
+        Result platform = run("platform", false);
+        Result virtual = run("virtual", true);
+
+        System.out.printf("%nJava %s, %d requests, %d in flight, %d ms downstream%n",
+                System.getProperty("java.version"), REQUESTS, CONCURRENCY, DOWNSTREAM_MILLIS);
+        System.out.printf("%-10s %12s %12s %10s %10s %8s%n", "threads", "requests/s", "concurrency", "p50 ms", "p99 ms", "errors");
+        for (Result result : new Result[]{platform, virtual}) {
+            System.out.printf("%-10s %12.0f %12d %10.2f %10.2f %8d%n", result.mode, result.throughput, result.peakConcurrency,
+                    result.percentile(0.50), result.percentile(0.99), result.errors);
+        }
+        assertThat(platform.errors).isZero();
+        assertThat(virtual.errors).isZero();
+    }
+
+    private Result run(String mode, boolean virtualThreads) throws Exception {
+        SlowRateResource.reset();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CurrencyExchangeApplication.class, SlowRateResource.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0", "exchange.virtual-threads=" + virtualThreads)
+                .run()) {
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/load/slow/rate/from/USD/to/HUF");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            send(client, uri, CONCURRENCY, new long[CONCURRENCY]);
+            SlowRateResource.reset();
+
+            long[] latencies = new long[REQUESTS];
+            long start = System.nanoTime();
+            int errors = send(client, uri, REQUESTS, latencies);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            return new Result(mode, REQUESTS / seconds, SlowRateResource.peak.get(), latencies, errors);
+        }
+    }
+
+    private int send(HttpClient client, URI uri, int requests, long[] latencies) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(failure -> null).join();
+        return errors.get();
+    }
+
+    /**
+     * Pair rates behind a blocking call, tracking how many requests are being served at once.
+     */
+    @RestController
+    public static class SlowRateResource {
+
+        private static final AtomicInteger active = new AtomicInteger();
+        private static final AtomicInteger peak = new AtomicInteger();
+
+        private final CurrencyExchangeService service;
+
+        public SlowRateResource(CurrencyExchangeService service) {
+            this.service = service;
+        }
+
+        static void reset() {
+            active.set(0);
+            peak.set(0);
+        }
+
+        @GetMapping("/load/slow/rate/from/{from}/to/{to}")
+        public CurrencyExchange getExchangeRate(@PathVariable String from, @PathVariable String to)
+                throws InvalidCurrencyException, CurrencyNotFoundException, InterruptedException {
+            peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(DOWNSTREAM_MILLIS);
+                return service.getExchangeRateFromCurrencyPairs(from, to);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Result {
+        private final String mode;
+        private final double throughput;
+        private final int peakConcurrency;
+        private final long[] sortedLatencies;
+        private final int errors;
+
+        private Result(String mode, double throughput, int peakConcurrency, long[] sortedLatencies, int errors) {
+            this.mode = mode;
+            this.throughput = throughput;
+            this.peakConcurrency = peakConcurrency;
+            this.sortedLatencies = sortedLatencies;
+            this.errors = errors;
+        }
+
+        private double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.currency.exchange.rest;
+
+import com.currency.exchange.CurrencyExchangeApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load comparison of the servlet API on Tomcat and the reactive API on Netty. Each stack is
+ * started on a random port and receives the same number of pair-rate requests with the same
+ * number in flight; throughput and latency percentiles of both are printed side by side.
+ * Excluded from the default build, run it with {@code mvn -Pload-test test}.
+ */
+@Tag("load")
+public class WebStackLoadTest {
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 50_000);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 1_000);
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    @Test
+    public void compareServletAndReactiveStacks() throws Exception {
+        Result servlet = run("servlet", WebApplicationType.SERVLET);
+        Result reactive = run("reactive", WebApplicationType.REACTIVE);
+
+        System.out.printf("%n%d requests, %d in flight%n", REQUESTS, CONCURRENCY);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "stack", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (Result result : new Result[]{servlet, reactive}) {
+            System.out.printf("%-10s %12.0f %10.2f %10.2f %10.2f %8d%n", result.stack, result.throughput,
+                    result.percentile(0.50), result.percentile(0.99), result.percentile(1.0), result.errors);
+        }
+        assertThat(servlet.errors).isZero();
+        assertThat(reactive.errors).isZero();
+    }
+
+    private Result run(String stack, WebApplicationType type) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(CurrencyExchangeApplication.class)
+                .web(type)
+                .properties("server.port=0");
+        if (type == WebApplicationType.REACTIVE) {
+            builder.profiles("reactive");
+        }
+        try (ConfigurableApplicationContext context = builder.run()) {
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/currency/exchange/rate/from/USD/to/HUF");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            send(client, uri, WARMUP_REQUESTS, new long[WARMUP_REQUESTS]);
+
+            long[] latencies = new long[REQUESTS];
+            long start = System.nanoTime();
+            int errors = send(client, uri, REQUESTS, latencies);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            return new Result(stack, REQUESTS / seconds, latencies, errors);
+        }
+    }
+
+    private int send(HttpClient client, URI uri, int requests, long[] latencies) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(failure -> null).join();
+        return errors.get();
+    }
+
+    private static final class Result {
+        private final String stack;
+        private final double throughput;
+        private final long[] sortedLatencies;
+        private final int errors;
+
+        private Result(String stack, double throughput, long[] sortedLatencies, int errors) {
+            this.stack = stack;
+            this.throughput = throughput;
+            this.sortedLatencies = sortedLatencies;
+            this.errors = errors;
+        }
+
+        private double percentile(double percentile) {
+            int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
@@ -4,6 +4,7 @@ package com.currency.exchange.service;
 import com.currency.exchange.exception.CurrencyNotFoundException;
 import com.currency.exchange.exception.InvalidCurrencyException;
 import com.currency.exchange.repository.CurrencyExchangeRepository;
+import com.currency.exchange.repository.RateSnapshot;
 import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
 import com.currency.exchange.service.bo.CurrencyConversion;
 import com.currency.exchange.service.bo.CurrencyExchange;
@@ -15,10 +16,10 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,7 +40,7 @@ public class CurrencyExchangeServiceTest {
     @Test
     public void testGetExchangeRateToEuro() throws InvalidCurrencyException, CurrencyNotFoundException {
         CurrencyExchangeDTO dto = new CurrencyExchangeDTO("USD",new BigDecimal(1.18), "United States", "US Dollars");
-        when(repository.findByCurrency("USD")).thenReturn(Optional.of(dto));
+        mockSnapshot(dto);
 
         CurrencyExchange exchange = service.getExchangeRateToEuro("USD");
         assertEquals(exchange.getFromCurrency(), dto.getCurrency());
@@ -48,6 +49,7 @@ public class CurrencyExchangeServiceTest {
 
     @Test
     public void testGetExchangeRateToEuroWithInvalidInputs() throws InvalidCurrencyException, CurrencyNotFoundException {
+        mockSnapshot();
 
         InvalidCurrencyException InvalidCurrencyException = assertThrows(InvalidCurrencyException.class, () -> {
             service.getExchangeRateToEuro(" ");
@@ -57,29 +59,30 @@ public class CurrencyExchangeServiceTest {
 
     @Test
     public void testGetExchangeRateToEUROForCurrencyNotFound() throws InvalidCurrencyException, CurrencyNotFoundException {
+        mockSnapshot();
 
         CurrencyNotFoundException exception = assertThrows(CurrencyNotFoundException.class, () -> {
             service.getExchangeRateToEuro("USD11");
         });
         assertTrue("No currency found for USD11".equals(exception.getMessage()));
+        assertEquals(0, exception.getStackTrace().length);
     }
 
     @Test
     public void testGetExchangeRateForCurrencyPairs() throws InvalidCurrencyException, CurrencyNotFoundException {
         CurrencyExchangeDTO fromDTO = new CurrencyExchangeDTO("USD",new BigDecimal(1.186), "United States", "US Dollars");
         CurrencyExchangeDTO toDTO = new CurrencyExchangeDTO("HUF",new BigDecimal(366.83),  "Hungary", "Hungary forint");
-        when(repository.findByCurrency("USD")).thenReturn(Optional.of(fromDTO));
-        when(repository.findByCurrency("HUF")).thenReturn(Optional.of(toDTO));
+        mockSnapshot(fromDTO, toDTO);
         CurrencyExchange exchange = service.getExchangeRateFromCurrencyPairs("USD", "HUF");
         assertEquals(exchange.getFromCurrency(), fromDTO.getCurrency());
         assertEquals(exchange.getToCurrency(), toDTO.getCurrency());
-        assertEquals(exchange.getExchangeRate().setScale(2, RoundingMode.HALF_UP), new BigDecimal(309.24).setScale(2, RoundingMode.HALF_UP));
+        assertEquals(exchange.getExchangeRate().setScale(2, RoundingMode.HALF_UP), new BigDecimal("309.30").setScale(2, RoundingMode.HALF_UP));
     }
 
     @Test
     public void testGetExchangeRateForCurrencyPairs_CurrencyNotFound() throws InvalidCurrencyException, CurrencyNotFoundException {
         CurrencyExchangeDTO toDTO = new CurrencyExchangeDTO("HUF",new BigDecimal(366.83), "Hungary", "Hungary forint");
-        when(repository.findByCurrency("HUF")).thenReturn(Optional.of(toDTO));
+        mockSnapshot(toDTO);
         CurrencyNotFoundException exception = assertThrows(CurrencyNotFoundException.class, () -> {
             service.getExchangeRateFromCurrencyPairs("HUF", "USD11");
         });
@@ -90,13 +93,12 @@ public class CurrencyExchangeServiceTest {
     public void testGetCurrencyConversions() throws InvalidCurrencyException, CurrencyNotFoundException {
         CurrencyExchangeDTO fromDTO = new CurrencyExchangeDTO("USD",new BigDecimal(1.186),"United States", "US Dollars");
         CurrencyExchangeDTO toDTO = new CurrencyExchangeDTO("HUF",new BigDecimal(366.83),"Hungary", "Hungary forint");
-        when(repository.findByCurrency("USD")).thenReturn(Optional.of(fromDTO));
-        when(repository.findByCurrency("HUF")).thenReturn(Optional.of(toDTO));
+        mockSnapshot(fromDTO, toDTO);
         CurrencyConversion conversion = service.getCurrencyConversion("USD", "HUF", new BigDecimal(15));
         assertEquals(conversion.getFrom(), fromDTO.getCurrency());
         assertEquals(conversion.getTo(), toDTO.getCurrency());
-        assertEquals(conversion.getExchangeRate().setScale(2, RoundingMode.HALF_UP), new BigDecimal(309.24).setScale(2, RoundingMode.HALF_UP));
-        assertEquals(conversion.getCalculateAmount().setScale(2, RoundingMode.HALF_UP), new BigDecimal(4638.60).setScale(2, RoundingMode.HALF_UP));
+        assertEquals(conversion.getExchangeRate().setScale(2, RoundingMode.HALF_UP), new BigDecimal("309.30").setScale(2, RoundingMode.HALF_UP));
+        assertEquals(conversion.getCalculateAmount().setScale(2, RoundingMode.HALF_UP), new BigDecimal("4639.50").setScale(2, RoundingMode.HALF_UP));
     }
 
     @Test
@@ -125,4 +127,8 @@ public class CurrencyExchangeServiceTest {
         assertNotEquals("No currency chart url found for USD11", exception.getMessage());
     }
 
+    private void mockSnapshot(CurrencyExchangeDTO... dtos) {
+        when(repository.getSnapshot()).thenReturn(RateSnapshot.of(1, Arrays.asList(dtos)));
+    }
+
 }
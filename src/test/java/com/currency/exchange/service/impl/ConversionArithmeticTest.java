@@ -0,0 +1,116 @@
+package com.currency.exchange.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the fixed-point conversions against {@code quantity * toRate / fromRate} rounded once
+ * with {@link BigDecimal}, over random rates and quantities and every rounding mode.
+ */
+public class ConversionArithmeticTest {
+
+    private static final int SAMPLES = 20_000;
+
+    @Test
+    public void testDivideMatchesBigDecimal() {
+        Random random = new Random(7);
+        for (RoundingMode roundingMode : roundingModes()) {
+            for (int i = 0; i < SAMPLES; i++) {
+                long dividend = random.nextLong() >> random.nextInt(63);
+                long divisor = (random.nextLong() >> random.nextInt(63)) | 1;
+                BigDecimal expected = BigDecimal.valueOf(dividend).divide(BigDecimal.valueOf(divisor), 0, roundingMode);
+                assertEquals(expected.longValueExact(), FixedPoint.divide(dividend, divisor, roundingMode),
+                        dividend + " / " + divisor + " " + roundingMode);
+            }
+            assertEquals(BigDecimal.valueOf(-5).divide(BigDecimal.valueOf(2), 0, roundingMode).longValueExact(),
+                    FixedPoint.divide(-5, 2, roundingMode));
+            assertEquals(BigDecimal.valueOf(7).divide(BigDecimal.valueOf(2), 0, roundingMode).longValueExact(),
+                    FixedPoint.divide(7, 2, roundingMode));
+        }
+    }
+
+    @Test
+    public void testConversionsMatchBigDecimal() {
+        Random random = new Random(11);
+        for (RoundingMode roundingMode : roundingModes()) {
+            ConversionArithmetic arithmetic = new ConversionArithmetic(roundingMode, Collections.emptyMap());
+            for (int i = 0; i < SAMPLES; i++) {
+                BigDecimal fromRate = randomRate(random);
+                BigDecimal toRate = randomRate(random);
+                BigDecimal quantity = BigDecimal.valueOf(random.nextLong() % 100_000_000_000L, random.nextInt(7) - 1);
+                int minorUnits = random.nextInt(4);
+
+                BigDecimal rateToEuro = BigDecimal.ONE.divide(fromRate, ConversionArithmetic.EURO_SCALE, roundingMode);
+                BigDecimal exchangeRate = toRate.divide(fromRate, ConversionArithmetic.PAIR_SCALE, roundingMode);
+                BigDecimal amount = quantity.multiply(toRate).divide(fromRate, minorUnits, roundingMode);
+
+                long scaledFromRate = arithmetic.toRate(fromRate);
+                long scaledToRate = arithmetic.toRate(toRate);
+                assertEquals(rateToEuro, BigDecimal.valueOf(arithmetic.rateToEuro(scaledFromRate), ConversionArithmetic.EURO_SCALE), fromRate + " " + roundingMode);
+                assertEquals(exchangeRate, BigDecimal.valueOf(arithmetic.exchangeRate(scaledFromRate, scaledToRate), ConversionArithmetic.PAIR_SCALE),
+                        fromRate + " " + toRate + " " + roundingMode);
+                assertEquals(amount, arithmetic.amount(scaledFromRate, scaledToRate, quantity, minorUnits),
+                        quantity + " * " + toRate + " / " + fromRate + " " + roundingMode);
+            }
+        }
+    }
+
+    @Test
+    public void testRatesAreOnlyRoundedOnce() {
+        ConversionArithmetic arithmetic = ConversionArithmetic.DEFAULT;
+        long huf = arithmetic.toRate(new BigDecimal("366.83"));
+        long usd = arithmetic.toRate(new BigDecimal("1.186"));
+        long jpy = arithmetic.toRate(new BigDecimal("130.15"));
+        BigDecimal quantity = new BigDecimal("1000000");
+
+        // a rate to EUR rounded to 3 places first made every HUF amount in USD 0
+        assertEquals(quantity.multiply(new BigDecimal("1.186")).divide(new BigDecimal("366.83"), 2, RoundingMode.HALF_UP),
+                arithmetic.amount(huf, usd, quantity, 2));
+        assertEquals(new BigDecimal("3233.11"), arithmetic.amount(huf, usd, quantity, 2));
+        assertEquals(new BigDecimal("9112.56"), arithmetic.amount(jpy, usd, quantity, 2));
+        assertEquals(0, arithmetic.exchangeRate(huf, usd));
+        assertEquals(100, arithmetic.exchangeRate(huf, huf));
+        assertEquals(quantity.setScale(2), arithmetic.amount(huf, huf, quantity, 2));
+    }
+
+    @Test
+    public void testQuantitiesOutsideTheFixedPointRange() {
+        ConversionArithmetic arithmetic = ConversionArithmetic.DEFAULT;
+        BigDecimal quantity = new BigDecimal("123456789012345678901234.5678");
+        long usd = arithmetic.toRate(new BigDecimal("1.186"));
+        long huf = arithmetic.toRate(new BigDecimal("366.83"));
+        assertEquals(quantity.multiply(new BigDecimal("366.83")).divide(new BigDecimal("1.186"), 2, RoundingMode.HALF_UP),
+                arithmetic.amount(usd, huf, quantity, 2));
+        assertEquals(new BigDecimal("4639.50"), arithmetic.amount(usd, huf, new BigDecimal("15"), 2));
+    }
+
+    @Test
+    public void testMinorUnits() {
+        ConversionArithmetic arithmetic = new ConversionArithmetic(RoundingMode.HALF_UP, Collections.singletonMap("HUF", 0));
+        assertEquals(0, arithmetic.minorUnits("HUF"));
+        assertEquals(0, arithmetic.minorUnits("JPY"));
+        assertEquals(2, arithmetic.minorUnits("USD"));
+        assertEquals(3, arithmetic.minorUnits("KWD"));
+        assertEquals(ConversionArithmetic.DEFAULT_MINOR_UNITS, arithmetic.minorUnits("XYZ"));
+        assertEquals(new BigDecimal("4640"), arithmetic.amount(arithmetic.toRate(new BigDecimal("1.186")), arithmetic.toRate(new BigDecimal("366.83")),
+                new BigDecimal("15"), arithmetic.minorUnits("HUF")));
+    }
+
+    private static BigDecimal randomRate(Random random) {
+        // EUR rates between 0.001 and 100000 with at most RATE_SCALE places
+        int scale = random.nextInt(ConversionArithmetic.RATE_SCALE + 1);
+        long unscaled = 1 + (long) (random.nextDouble() * 100_000 * Math.pow(10, scale));
+        return BigDecimal.valueOf(Math.max(unscaled, (long) Math.pow(10, scale - 3 < 0 ? 0 : scale - 3)), scale);
+    }
+
+    private static RoundingMode[] roundingModes() {
+        return new RoundingMode[]{RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+                RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN};
+    }
+}
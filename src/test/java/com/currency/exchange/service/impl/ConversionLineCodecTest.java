@@ -0,0 +1,40 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.service.bo.ConversionStreamFormat;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConversionLineCodecTest {
+
+    private final ConversionLineCodec codec = new ConversionLineCodec(new JsonFactory());
+
+    @Test
+    public void testRequestsAreParsedFromBothFormats() throws IOException {
+        CurrencyConversionRequest json = codec.parse("{\"from\":\"USD\",\"extra\":{\"from\":\"GBP\"},\"to\":\"HUF\",\"quantity\":\"12.5\"}",
+                ConversionStreamFormat.NDJSON);
+        assertEquals(new CurrencyConversionRequest("USD", "HUF", new BigDecimal("12.5")), json);
+
+        CurrencyConversionRequest csv = codec.parse("USD, HUF,", ConversionStreamFormat.CSV);
+        assertEquals("HUF", csv.getTo());
+        assertNull(csv.getQuantity());
+    }
+
+    @Test
+    public void testLinesThatAreNoRequestsAreMalformed() {
+        for (String line : new String[]{"[\"USD\",\"HUF\",1]", "{\"from\":{\"to\":\"HUF\"},\"quantity\":1}",
+                "{\"from\":\"USD\",\"to\":[\"HUF\"]}", "{\"from\":\"USD\",\"to\":\"HUF\",\"quantity\":\"ten\"}"}) {
+            assertThrows(ConversionLineCodec.MalformedLineException.class, () -> codec.parse(line, ConversionStreamFormat.NDJSON), line);
+        }
+        assertThrows(ConversionLineCodec.MalformedLineException.class, () -> codec.parse("USD,HUF", ConversionStreamFormat.CSV));
+        assertThrows(ConversionLineCodec.MalformedLineException.class, () -> codec.parse("USD,HUF,ten", ConversionStreamFormat.CSV));
+        assertThrows(IOException.class, () -> codec.parse("{\"from\":", ConversionStreamFormat.NDJSON));
+    }
+}
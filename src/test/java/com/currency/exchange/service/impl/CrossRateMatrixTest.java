@@ -0,0 +1,107 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CrossRateMatrixTest {
+
+    private static final List<CurrencyExchangeDTO> RATES = Arrays.asList(
+            new CurrencyExchangeDTO("USD", new BigDecimal("1.186"), "United States", "US dollar"),
+            new CurrencyExchangeDTO("HUF", new BigDecimal("366.83"), "Hungary", "Hungarian forint"),
+            new CurrencyExchangeDTO("JPY", new BigDecimal("130.15"), "Japan", "Japanese yen"));
+
+    @Test
+    public void testBuild() {
+        CrossRateMatrix matrix = CrossRateMatrix.build(RateSnapshot.of(1, RATES));
+        assertEquals(new BigDecimal("0.843"), matrix.rateToEuro(0));
+        assertEquals(new BigDecimal("309.30"), matrix.rate(0, 1));
+        assertEquals(3, matrix.getRecomputedCurrencies());
+    }
+
+    @Test
+    public void testQuotesAgainstOtherBasesAreRoutedThroughEur() {
+        RateSnapshot snapshot = RateSnapshot.of(1, Arrays.asList(
+                new CurrencyExchangeDTO("USD", new BigDecimal("1.186"), "United States", "US dollar"),
+                new CurrencyExchangeDTO("HUF", new BigDecimal("309.30"), "Hungary", "Hungarian forint", "USD"),
+                new CurrencyExchangeDTO("JPY", new BigDecimal("0.3548"), "Japan", "Japanese yen", "HUF"),
+                new CurrencyExchangeDTO("CAD", new BigDecimal("1.25"), "Canada", "Canadian dollar", "CHF"),
+                new CurrencyExchangeDTO("CHF", new BigDecimal("0.92"), "Switzerland", "Swiss franc", "XAU")));
+        CrossRateMatrix matrix = CrossRateMatrix.build(snapshot);
+        RateGraph graph = matrix.getGraph();
+
+        assertEquals(Arrays.asList("USD", "HUF", "JPY", "CAD", "CHF", "EUR", "XAU"), graph.getCodes());
+        assertEquals(5, matrix.size());
+        assertEquals(7, matrix.nodes());
+        assertEquals(2, graph.hops(1));
+        assertEquals(0, graph.via(1));
+        assertEquals(3, graph.hops(2));
+        assertEquals(3, graph.getUnreachable());
+        assertEquals(-1, matrix.indexOf("CAD"));
+        assertEquals(-1, matrix.indexOf("XAU"));
+
+        CrossRateMatrix eurQuoted = CrossRateMatrix.build(RateSnapshot.of(1, Arrays.asList(
+                new CurrencyExchangeDTO("USD", new BigDecimal("1.186"), null, null),
+                new CurrencyExchangeDTO("HUF", new BigDecimal("366.8298"), null, null),
+                new CurrencyExchangeDTO("JPY", new BigDecimal("130.15121304"), null, null))));
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(eurQuoted.rate(i, j), matrix.rate(i, j));
+            }
+        }
+        int eur = matrix.indexOf("EUR");
+        assertEquals(5, eur);
+        assertEquals(new BigDecimal("0.84"), matrix.rate(0, eur));
+        assertEquals(new BigDecimal("366.83"), matrix.rate(eur, 1));
+        assertEquals(new BigDecimal("1.000"), matrix.rateToEuro(eur));
+    }
+
+    @Test
+    public void testUnquotedBaseIsAConvertibleCurrency() {
+        RateSnapshot snapshot = RateSnapshot.of(1, Arrays.asList(
+                new CurrencyExchangeDTO("EUR", new BigDecimal("0.8"), "Europe", "Euro", "USD"),
+                new CurrencyExchangeDTO("GBP", new BigDecimal("0.72"), "United Kingdom", "Pound sterling", "USD")));
+        CrossRateMatrix matrix = CrossRateMatrix.build(snapshot);
+
+        int usd = matrix.indexOf("USD");
+        assertEquals(2, usd);
+        assertEquals(new BigDecimal("1.250000"), matrix.getGraph().pivotRate(usd).setScale(6));
+        assertEquals(new BigDecimal("0.90"), matrix.rate(0, 1));
+        assertEquals(new BigDecimal("0.72"), matrix.rate(usd, 1));
+    }
+
+    @Test
+    public void testIncrementalRebuildMatchesFullBuild() {
+        RateSnapshot first = RateSnapshot.of(1, RATES);
+        RateSnapshot second = RateSnapshot.of(2, Arrays.asList(
+                RATES.get(0),
+                new CurrencyExchangeDTO("HUF", new BigDecimal("360.01"), "Hungary", "Hungarian forint"),
+                RATES.get(2)), first);
+
+        CrossRateMatrix incremental = CrossRateMatrix.rebuild(CrossRateMatrix.build(first), second);
+        CrossRateMatrix full = CrossRateMatrix.build(second);
+
+        assertEquals(1, incremental.getRecomputedCurrencies());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.rateToEuro(i), incremental.rateToEuro(i));
+            for (int j = 0; j < full.size(); j++) {
+                assertEquals(full.rate(i, j), incremental.rate(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testRebuildWithDifferentCurrenciesBuildsFromScratch() {
+        RateSnapshot first = RateSnapshot.of(1, RATES);
+        RateSnapshot second = RateSnapshot.of(2, RATES.subList(0, 2), first);
+        CrossRateMatrix rebuilt = CrossRateMatrix.rebuild(CrossRateMatrix.build(first), second);
+        assertEquals(2, rebuilt.size());
+        assertEquals(2, rebuilt.getRecomputedCurrencies());
+    }
+}
@@ -0,0 +1,90 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateHistory;
+import com.currency.exchange.repository.RateSeries;
+import com.currency.exchange.repository.impl.ArrayRateSeries;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PairSeriesIndexTest {
+
+    @Test
+    public void testRangeQueriesMatchScanningTheRange() {
+        Random random = new Random(42);
+        ArrayRateSeries.Builder usd = new ArrayRateSeries.Builder();
+        ArrayRateSeries.Builder huf = new ArrayRateSeries.Builder();
+        int day = 18_000;
+        for (int i = 0; i < 500; i++) {
+            day += 1 + random.nextInt(3);
+            usd.add(day, 1_100_000 + random.nextInt(100_000));
+            if (i % 7 != 3) {
+                huf.add(day, 350_000_000 + random.nextInt(20_000_000));
+            }
+        }
+        Map<String, RateSeries> series = new HashMap<>();
+        series.put("USD", usd.build());
+        series.put("HUF", huf.build());
+        RateHistory history = new RateHistory(series);
+        PairSeriesIndex index = PairSeriesIndex.build(history, history.getSeries("USD"), history.getSeries("HUF"), ConversionArithmetic.DEFAULT);
+
+        assertEquals(500, index.size());
+        for (int low = 0; low < index.size(); low += 13) {
+            for (int high = low; high < index.size(); high += 7) {
+                BigDecimal min = index.rateAt(low);
+                BigDecimal max = index.rateAt(low);
+                BigDecimal sum = BigDecimal.ZERO;
+                for (int i = low; i <= high; i++) {
+                    min = min.min(index.rateAt(i));
+                    max = max.max(index.rateAt(i));
+                    sum = sum.add(index.rateAt(i));
+                }
+                assertEquals(min, index.min(low, high));
+                assertEquals(max, index.max(low, high));
+                assertEquals(sum, BigDecimal.valueOf(index.sum(low, high), PairSeriesIndex.SCALE));
+                assertEquals(volatility(index, low, high), index.volatility(low, high), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRatesAreTheExactRatiosOfTheEurRates() {
+        ArrayRateSeries.Builder usd = new ArrayRateSeries.Builder();
+        ArrayRateSeries.Builder huf = new ArrayRateSeries.Builder();
+        usd.add(18_690, 1_185_100);
+        huf.add(18_690, 365_440_000);
+        Map<String, RateSeries> series = new HashMap<>();
+        series.put("USD", usd.build());
+        series.put("HUF", huf.build());
+        RateHistory history = new RateHistory(series);
+        PairSeriesIndex index = PairSeriesIndex.build(history, history.getSeries("USD"), history.getSeries("HUF"), ConversionArithmetic.DEFAULT);
+
+        assertEquals(new BigDecimal("308.362164"), index.rateAt(0));
+        assertEquals(0, index.firstIndexFrom(18_000));
+        assertEquals(1, index.firstIndexFrom(18_691));
+        assertEquals(-1, index.lastIndexUntil(18_689));
+    }
+
+    private static double volatility(PairSeriesIndex index, int low, int high) {
+        int returns = high - low;
+        if (returns < 2) {
+            return 0;
+        }
+        double[] values = new double[returns];
+        double mean = 0;
+        for (int i = 0; i < returns; i++) {
+            values[i] = Math.log(index.rateAt(low + i + 1).doubleValue() / index.rateAt(low + i).doubleValue());
+            mean += values[i] / returns;
+        }
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (returns - 1));
+    }
+}
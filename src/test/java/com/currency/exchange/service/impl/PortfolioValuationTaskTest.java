@@ -0,0 +1,63 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.repository.RateSnapshot;
+import com.currency.exchange.repository.dto.CurrencyExchangeDTO;
+import com.currency.exchange.service.bo.PortfolioPosition;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PortfolioValuationTaskTest {
+
+    private static final CrossRateMatrix MATRIX = CrossRateMatrix.build(RateSnapshot.of(1, Arrays.asList(
+            new CurrencyExchangeDTO("USD", new BigDecimal("1.186"), "United States", "US dollar"),
+            new CurrencyExchangeDTO("HUF", new BigDecimal("366.83"), "Hungary", "Hungarian forint"),
+            new CurrencyExchangeDTO("JPY", new BigDecimal("130.15"), "Japan", "Japanese yen"))));
+
+    private static final String[] HELD = {"USD", "HUF", "EUR"};
+
+    @Test
+    public void testParallelSumsMatchTheSequentialOnes() {
+        Random random = new Random(42);
+        List<PortfolioPosition> positions = new ArrayList<>();
+        BigDecimal[] expected = new BigDecimal[MATRIX.nodes()];
+        for (int i = 0; i < 50_000; i++) {
+            String currency = HELD[random.nextInt(HELD.length)];
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2);
+            positions.add(new PortfolioPosition(currency, amount));
+            int index = MATRIX.indexOf(currency);
+            expected[index] = expected[index] == null ? amount : expected[index].add(amount);
+        }
+
+        PortfolioValuationTask.Sums sums = ForkJoinPool.commonPool().invoke(new PortfolioValuationTask(MATRIX, positions, 512));
+
+        assertEquals(-1, sums.getFirstInvalid());
+        for (int i = 0; i < MATRIX.nodes(); i++) {
+            assertEquals(expected[i], sums.amount(i));
+        }
+        assertNull(sums.amount(MATRIX.indexOf("JPY")));
+        assertEquals(positions.size(), sums.positions(0) + sums.positions(1) + sums.positions(MATRIX.indexOf("EUR")));
+    }
+
+    @Test
+    public void testFirstInvalidPositionIsReportedAcrossSplits() {
+        List<PortfolioPosition> positions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            positions.add(new PortfolioPosition("USD", BigDecimal.ONE));
+        }
+        positions.set(9_000, new PortfolioPosition("XXX", BigDecimal.ONE));
+        positions.set(7_777, new PortfolioPosition("HUF", null));
+
+        PortfolioValuationTask.Sums sums = ForkJoinPool.commonPool().invoke(new PortfolioValuationTask(MATRIX, positions, 100));
+
+        assertEquals(7_777, sums.getFirstInvalid());
+    }
+}
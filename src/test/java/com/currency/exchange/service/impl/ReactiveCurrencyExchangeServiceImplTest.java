@@ -0,0 +1,50 @@
+package com.currency.exchange.service.impl;
+
+import com.currency.exchange.metrics.CurrencyExchangeMetrics;
+import com.currency.exchange.service.CurrencyExchangeService;
+import com.currency.exchange.service.bo.CurrencyConversionRequest;
+import com.currency.exchange.service.bo.CurrencyConversionResult;
+import com.currency.exchange.service.bo.CurrencyExchange;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReactiveCurrencyExchangeServiceImplTest {
+
+    private final CurrencyExchangeService service = mock(CurrencyExchangeService.class);
+
+    private final ReactiveCurrencyExchangeServiceImpl reactiveService = new ReactiveCurrencyExchangeServiceImpl(service,
+            mock(CurrencyExchangeMetrics.class), new ObjectMapper());
+
+    @Test
+    public void testTheServiceIsNeverCalledOnTheSubscribingThread() throws Exception {
+        AtomicReference<String> lookupThread = new AtomicReference<>();
+        when(service.getExchangeRateFromCurrencyPairs(eq("USD"), eq("HUF"), any())).thenAnswer(invocation -> {
+            lookupThread.set(Thread.currentThread().getName());
+            return CurrencyExchange.builder().fromCurrency("USD").toCurrency("HUF").build();
+        });
+        AtomicReference<String> batchThread = new AtomicReference<>();
+        when(service.getCurrencyConversions(anyList())).thenAnswer(invocation -> {
+            batchThread.set(Thread.currentThread().getName());
+            List<CurrencyConversionRequest> requests = invocation.getArgument(0);
+            return Collections.nCopies(requests.size(), CurrencyConversionResult.builder().build());
+        });
+
+        assertThat(reactiveService.getExchangeRateFromCurrencyPairs("USD", "HUF", null).block().getToCurrency()).isEqualTo("HUF");
+        assertThat(reactiveService.getCurrencyConversions(Flux.just(new CurrencyConversionRequest())).collectList().block()).hasSize(1);
+
+        assertThat(lookupThread.get()).startsWith("boundedElastic").isNotEqualTo(Thread.currentThread().getName());
+        assertThat(batchThread.get()).startsWith("boundedElastic");
+    }
+}
@@ -0,0 +1,89 @@
+package com.currency.exchange.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+
+    private static final int CALLERS = 16;
+
+    @Test
+    public void testConcurrentCallersShareOneComputation() throws Exception {
+        AtomicInteger coalesced = new AtomicInteger();
+        SingleFlight<String, Object> flight = new SingleFlight<>(coalesced::incrementAndGet);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> flight.execute("USD-HUF", () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return new Object();
+                })));
+            }
+            // every caller is either computing or waiting before the computation may finish
+            while (computations.get() + coalesced.get() < CALLERS) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            Object value = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(value, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(CALLERS - 1, coalesced.get());
+            assertEquals(0, flight.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailuresAreSharedAndNotRemembered() throws Exception {
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // the leader fails only once this caller waits for it
+        SingleFlight<String, String> flight = new SingleFlight<>(release::countDown);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> flight.execute("USD-HUF", () -> {
+                computing.countDown();
+                await(release);
+                throw new IllegalStateException("history reloaded");
+            }));
+            assertTrue(computing.await(5, TimeUnit.SECONDS));
+            IllegalStateException shared = assertThrows(IllegalStateException.class, () -> flight.execute("USD-HUF", () -> "recomputed"));
+            assertEquals("history reloaded", shared.getMessage());
+            assertTrue(assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause() == shared);
+
+            assertEquals("recomputed", flight.execute("USD-HUF", () -> "recomputed"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}